@@ -0,0 +1,84 @@
+package enumerateWeightedSetCovers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+  * Loads the bundled problems for the benchmarks, and creates the random subproblems they solve.
+  *
+  * The problems are read from the directory given by the system property "tests.dir", which is "../tests" by
+  * default (so that the benchmarks can be run from the benchmarks directory), or "tests" if there is no such
+  * directory (when running from the root of the repository).
+  */
+class BenchmarkProblems {
+
+	/**
+	  * The seed of the random subproblems, so that all runs measure the same subproblems
+	  */
+	static final long SEED = 42;
+
+	/**
+	  * @param name the name of a problem file, relative to the tests directory (e.g., "syn/scp41.txt")
+	  * @return the problem
+	  */
+	static SetCoverProblem load(String name) throws IOException {
+
+		String testsDir = System.getProperty("tests.dir");
+		if (testsDir == null) testsDir = new File("../tests").isDirectory() ? "../tests" : "tests";
+		return SetCoverProblemGenerator.generateSetCoverProblem(testsDir + File.separator + name);
+	}
+
+	/**
+	  * Creates subproblems like those solved when expanding queue entries: a few sets are fixed (their elements
+	  * are covered), and some of the other sets are not allowed
+	  * @param problem a problem
+	  * @param count the number of subproblems
+	  * @param covered the covered elements of every subproblem are put here
+	  * @param legalSets the legal sets of every subproblem are put here
+	  */
+	static void subproblems(SetCoverProblem problem, int count, BitSet[] covered, BitSet[] legalSets) {
+
+		Random random = new Random(SEED);
+		int numOfSets = problem.getNumberOfSets();
+		for (int k = 0 ; k < count ; k++) {
+
+			BitSet fixed = new BitSet(numOfSets);
+			int numFixed = random.nextInt(10);
+			for (int j = 0 ; j < numFixed ; j++) {
+				fixed.set(random.nextInt(numOfSets));
+			}
+
+			legalSets[k] = new BitSet(numOfSets);
+			for (int i = 0 ; i < numOfSets ; i++) {
+				if (!fixed.get(i) && random.nextInt(10) != 0) legalSets[k].set(i);
+			}
+			covered[k] = problem.getCoveredBy(fixed);
+		}
+	}
+
+	/**
+	  * Creates random solutions (which are usually redundant covers) by adding random sets to a greedy cover
+	  * @param problem a problem
+	  * @param count the number of solutions
+	  * @return the solutions
+	  */
+	static Solution[] redundantSolutions(SetCoverProblem problem, int count) {
+
+		Random random = new Random(SEED);
+		Solution cover = new GreedyMinSetCover().approxSetCover(problem);
+		Solution[] solutions = new Solution[count];
+		for (int k = 0 ; k < count ; k++) {
+
+			solutions[k] = cover.clone();
+			int numAdded = 1 + random.nextInt(20);
+			for (int j = 0 ; j < numAdded ; j++) {
+
+				int i = random.nextInt(problem.getNumberOfSets());
+				if (!solutions[k].getSolution().get(i)) solutions[k].addSet(i, problem.getWeight(i));
+			}
+		}
+		return solutions;
+	}
+}
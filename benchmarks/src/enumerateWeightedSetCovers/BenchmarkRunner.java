@@ -0,0 +1,35 @@
+package enumerateWeightedSetCovers;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+  * Runs the benchmarks with the GC profiler, which reports the allocation rate and the allocations per operation
+  * of every benchmark. Takes the usual JMH command line options (e.g., a pattern of the benchmarks to run)
+  */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp()) {
+			commandLine.showHelp();
+			return;
+		}
+
+		Options options = new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class)
+				.build();
+		Runner runner = new Runner(options);
+		if (commandLine.shouldList()) runner.list();
+		else runner.run();
+	}
+}
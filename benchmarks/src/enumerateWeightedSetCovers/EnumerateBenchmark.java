@@ -0,0 +1,52 @@
+package enumerateWeightedSetCovers;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+  * Benchmarks whole enumerations of the bundled problems
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EnumerateBenchmark {
+
+	@Param({"syn/scp41.txt", "syn/scpa1.txt", "real/rail507.txt", "dblp/dblp.txt"})
+	public String problemFile;
+
+	@Param({"100"})
+	public int maxResults;
+
+	@Param({"false", "true"})
+	public boolean nonRedundant;
+
+	private SetCoverProblem problem;
+
+	@Setup
+	public void setup() throws IOException {
+		problem = BenchmarkProblems.load(problemFile);
+	}
+
+	@Benchmark
+	public EnumerationMetrics enumerate() {
+
+		EnumerateSetCovers enumsc = new EnumerateSetCovers();
+		enumsc.enumerate(problem, maxResults, nonRedundant);
+		return enumsc.getMetrics();
+	}
+}
@@ -0,0 +1,67 @@
+package enumerateWeightedSetCovers;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+  * Benchmarks the greedy algorithm, on whole problems and on subproblems like those solved during enumeration
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GreedyBenchmark {
+
+	@Param({"syn/scp41.txt", "syn/scpnre1.txt", "real/rail507.txt", "dblp/dblp.txt"})
+	public String problemFile;
+
+	/**
+	  * The number of different subproblems that are solved in turn
+	  */
+	private static final int NUM_SUBPROBLEMS = 64;
+
+	private SetCoverProblem problem;
+
+	private GreedyMinSetCover greedy;
+
+	private BitSet[] covered = new BitSet[NUM_SUBPROBLEMS];
+
+	private BitSet[] legalSets = new BitSet[NUM_SUBPROBLEMS];
+
+	private int next = 0;
+
+	@Setup
+	public void setup() throws IOException {
+
+		problem = BenchmarkProblems.load(problemFile);
+		greedy = new GreedyMinSetCover();
+		BenchmarkProblems.subproblems(problem, NUM_SUBPROBLEMS, covered, legalSets);
+	}
+
+	@Benchmark
+	public Solution wholeProblem() {
+		return greedy.approxSetCover(problem);
+	}
+
+	@Benchmark
+	public Solution subproblem() {
+
+		next = (next + 1) % NUM_SUBPROBLEMS;
+		return greedy.approxSetCover(problem, covered[next], legalSets[next]);
+	}
+}
@@ -0,0 +1,70 @@
+package enumerateWeightedSetCovers;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+  * Benchmarks the operations of SetCoverProblem that are used for every queue entry: making a solution
+  * non-redundant, and finding the elements covered by a solution
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProblemBenchmark {
+
+	@Param({"syn/scp41.txt", "syn/scpnre1.txt", "real/rail507.txt", "dblp/dblp.txt"})
+	public String problemFile;
+
+	/**
+	  * The number of different solutions that are used in turn
+	  */
+	private static final int NUM_SOLUTIONS = 64;
+
+	private SetCoverProblem problem;
+
+	private Solution[] solutions;
+
+	private int[] coverCount;
+
+	private BitSet noneCovered = new BitSet();
+
+	private int next = 0;
+
+	@Setup
+	public void setup() throws IOException {
+
+		problem = BenchmarkProblems.load(problemFile);
+		solutions = BenchmarkProblems.redundantSolutions(problem, NUM_SOLUTIONS);
+		coverCount = new int[problem.getUniverseSize()];
+	}
+
+	@Benchmark
+	public Solution makeNonRedundant() {
+
+		next = (next + 1) % NUM_SOLUTIONS;
+		return problem.makeNonRedundant(solutions[next], noneCovered, coverCount);
+	}
+
+	@Benchmark
+	public BitSet getCoveredBy() {
+
+		next = (next + 1) % NUM_SOLUTIONS;
+		return problem.getCoveredBy(solutions[next].getSolution());
+	}
+}
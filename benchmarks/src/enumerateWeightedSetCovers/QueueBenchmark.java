@@ -0,0 +1,86 @@
+package enumerateWeightedSetCovers;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+  * Benchmarks the bounded queue of the enumeration: a full queue to which new entries are offered (about half of
+  * which are admitted and evict the worst entry), and from which the best entry is polled and replaced by a new one.
+  *
+  * Every call creates a new entry, whose weight is a base weight plus a random part in [0, 8 * capacity). For offer
+  * the base falls by one per call, so the queue keeps the lowest weights among the recently offered entries, and
+  * in the steady state it holds the weights in about [base, base + 4 * capacity), which admits half of the new entries.
+  * For pollAndOffer the base rises by one per call, as the entries added during the enumeration are heavier than
+  * the entry that was polled before them
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueBenchmark {
+
+	@Param({"1000", "100000"})
+	public int capacity;
+
+	private BoundedQueue queue;
+
+	private Random random;
+
+	/**
+	  * The base weight of the next new entry. The queue is refilled for every iteration, so the base stays far
+	  * from overflowing
+	  */
+	private int base;
+
+	/**
+	  * The index of the set in the next new entry
+	  */
+	private int nextSet = 0;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+
+		random = new Random(BenchmarkProblems.SEED);
+		base = 0;
+		queue = new BoundedQueue(capacity);
+		for (int k = 0 ; k < capacity ; k++) {
+			queue.offer(newEntry(base));
+		}
+	}
+
+	@Benchmark
+	public boolean offer() {
+		return queue.offer(newEntry(--base));
+	}
+
+	@Benchmark
+	public QueueEntry pollAndOffer() {
+
+		QueueEntry best = queue.poll();
+		queue.offer(newEntry(++base));
+		return best;
+	}
+
+	/**
+	  * @param base a base weight
+	  * @return a new entry, with one set, whose weight is the base weight plus a random part
+	  */
+	private QueueEntry newEntry(int base) {
+		return new QueueEntry(base + random.nextInt(8 * capacity), new int[] {nextSet++ & 0xFFFF}, SharedBitSet.EMPTY, SharedBitSet.EMPTY, true);
+	}
+}
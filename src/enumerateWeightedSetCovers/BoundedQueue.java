@@ -0,0 +1,315 @@
+package enumerateWeightedSetCovers;
+
+import java.util.Arrays;
+
+/**
+  * A priority queue of QueueEntry objects that holds at most a given number of entries.
+  *
+  * Internally, the queue is a min-max heap: the entries on even levels of the heap are smaller than all
+  * their descendants, and the entries on odd levels are larger than all their descendants. Hence both the
+  * best (lowest weight) and the worst (highest weight) entries can be found in O(1) and removed in O(log n).
+  * When the queue is full, a new entry is added only if it is better than the worst entry, which is evicted.
+  */
+class BoundedQueue implements EntryQueue {
+
+	/**
+	  * The maximum number of entries in the queue
+	  */
+	private int capacity;
+
+	/**
+	  * The entries, in min-max heap order
+	  */
+	private QueueEntry[] heap;
+
+	/**
+	  * The number of entries in the queue
+	  */
+	private int size = 0;
+
+	/**
+	  * The estimated memory of the entries in the queue, in bytes (see QueueEntry.estimatedBytes)
+	  */
+	private long bytes = 0;
+
+	/**
+	  * Creates an empty queue
+	  * @param capacity the maximum number of entries in the queue
+	  */
+	public BoundedQueue(int capacity) {
+
+		this.capacity = Math.max(capacity, 0);
+		heap = new QueueEntry[Math.min(this.capacity, 1024)];
+	}
+
+	/**
+	  * @return the number of entries in the queue
+	  */
+	public int size() {
+		return size;
+	}
+
+	/**
+	  * @return the estimated memory of the entries in the queue, in bytes
+	  */
+	public long estimatedBytes() {
+		return bytes;
+	}
+
+	/**
+	  * @return the maximum number of entries in the queue
+	  */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	  * Returns the entries in the order of the heap. Offering them in this order to an empty queue with the same
+	  * capacity restores the same heap, since every entry is already in order with respect to the entries above it
+	  * @return a new array with the entries
+	  */
+	public QueueEntry[] toArray() {
+		return Arrays.copyOf(heap, size);
+	}
+
+	/**
+	  * @return no runs, as all entries are in memory
+	  */
+	public SpillingQueue.SpilledRun[] spilledRuns() {
+		return new SpillingQueue.SpilledRun[0];
+	}
+
+	/**
+	  * @return true if there are no entries in the queue
+	  */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	  * @return true if the queue holds its maximum number of entries
+	  */
+	public boolean isFull() {
+		return size >= capacity;
+	}
+
+	/**
+	  * @param weight the weight of a solution
+	  * @return true if an entry with the given weight would be added to the queue
+	  */
+	public boolean admits(int weight) {
+		return size < capacity || (size > 0 && weight < worstWeight());
+	}
+
+	/**
+	  * Adds an entry to the queue. If the queue is full, the entry is added only if it is better than
+	  * the worst entry in the queue, and then the worst entry is removed
+	  * @param entry the entry to be added
+	  * @return true if the entry was added
+	  */
+	public boolean offer(QueueEntry entry) {
+
+		if (!admits(entry.getWeight())) return false;
+
+		if (size == capacity) pollWorst();
+		if (size == heap.length) {
+
+			QueueEntry[] newHeap = new QueueEntry[(int)Math.min((long)capacity, 2L * heap.length + 1)];
+			System.arraycopy(heap, 0, newHeap, 0, size);
+			heap = newHeap;
+		}
+		heap[size] = entry;
+		bytes += entry.estimatedBytes();
+		bubbleUp(size++);
+		return true;
+	}
+
+	/**
+	  * Removes the worst entries until the estimated memory of the queue is at most the given number of bytes, and
+	  * lowers the capacity of the queue to the number of remaining entries, so that from now on an entry is only
+	  * added to a full queue if it is better than the worst entry
+	  * @param maxBytes the estimated memory that the queue may take
+	  * @return the number of removed entries
+	  */
+	public int shrinkTo(long maxBytes) {
+
+		int removed = 0;
+		while (bytes > maxBytes && size > 0) {
+			pollWorst();
+			removed++;
+		}
+		capacity = Math.min(capacity, size);
+		return removed;
+	}
+
+	/**
+	  * @return the best entry in the queue (without removing it), or null if the queue is empty
+	  */
+	public QueueEntry peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	/**
+	  * @return the worst entry in the queue (without removing it), or null if the queue is empty
+	  */
+	public QueueEntry peekWorst() {
+		return size == 0 ? null : heap[worstIndex()];
+	}
+
+	/**
+	  * @return the weight of the worst entry in the queue, or Integer.MAX_VALUE if the queue is empty
+	  */
+	public int worstWeight() {
+		return size == 0 ? Integer.MAX_VALUE : heap[worstIndex()].getWeight();
+	}
+
+	/**
+	  * Removes the best entry in the queue
+	  * @return the removed entry, or null if the queue is empty
+	  */
+	public QueueEntry poll() {
+
+		if (size == 0) return null;
+		return removeAt(0);
+	}
+
+	/**
+	  * Removes the worst entry in the queue
+	  * @return the removed entry, or null if the queue is empty
+	  */
+	public QueueEntry pollWorst() {
+
+		if (size == 0) return null;
+		return removeAt(worstIndex());
+	}
+
+	/**
+	  * @return the index of the worst entry in the heap, assuming the heap is not empty
+	  */
+	private int worstIndex() {
+
+		if (size == 1) return 0;
+		if (size == 2 || less(heap[2], heap[1])) return 1;
+		return 2;
+	}
+
+	/**
+	  * Removes the entry at the given index, by moving the last entry to its place
+	  * @param i an index in the heap
+	  * @return the removed entry
+	  */
+	private QueueEntry removeAt(int i) {
+
+		QueueEntry removed = heap[i];
+		bytes -= removed.estimatedBytes();
+		heap[i] = heap[--size];
+		heap[size] = null;
+		if (i < size) trickleDown(i);
+		return removed;
+	}
+
+	/**
+	  * @return true if a has a lower weight than b
+	  */
+	private static boolean less(QueueEntry a, QueueEntry b) {
+		return a.getWeight() < b.getWeight();
+	}
+
+	/**
+	  * @param max true when comparing on a max level, false when comparing on a min level
+	  * @return true if a should be above b on a level of the given kind
+	  */
+	private static boolean better(QueueEntry a, QueueEntry b, boolean max) {
+		return max ? less(b, a) : less(a, b);
+	}
+
+	/**
+	  * @param i an index in the heap
+	  * @return true if the index is on a level of the heap whose entries are smaller than their descendants
+	  */
+	private static boolean isMinLevel(int i) {
+		return (31 - Integer.numberOfLeadingZeros(i + 1)) % 2 == 0;
+	}
+
+	/**
+	  * Swaps the entries at the given indices of the heap
+	  */
+	private void swap(int i, int j) {
+
+		QueueEntry tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+
+	/**
+	  * Moves a newly added entry up, until the min-max heap order is restored
+	  * @param i the index of the entry
+	  */
+	private void bubbleUp(int i) {
+
+		if (i == 0) return;
+		int parent = (i - 1) / 2;
+		if (isMinLevel(i)) {
+
+			if (less(heap[parent], heap[i])) {
+				swap(i, parent);
+				bubbleUpLevels(parent, true);
+			}
+			else bubbleUpLevels(i, false);
+		}
+		else {
+
+			if (less(heap[i], heap[parent])) {
+				swap(i, parent);
+				bubbleUpLevels(parent, false);
+			}
+			else bubbleUpLevels(i, true);
+		}
+	}
+
+	/**
+	  * Moves an entry up through its grandparents, which are on levels of the same kind
+	  * @param i the index of the entry
+	  * @param max true if the entry is on a max level, false if it is on a min level
+	  */
+	private void bubbleUpLevels(int i, boolean max) {
+
+		while (i >= 3) {
+
+			int grandparent = ((i - 1) / 2 - 1) / 2;
+			if (better(heap[i], heap[grandparent], max)) {
+				swap(i, grandparent);
+				i = grandparent;
+			}
+			else break;
+		}
+	}
+
+	/**
+	  * Moves an entry down, until the min-max heap order is restored
+	  * @param i the index of the entry
+	  */
+	private void trickleDown(int i) {
+
+		boolean max = !isMinLevel(i);
+		while (2 * i + 1 < size) {
+
+			// find the best (smallest on min levels, largest on max levels) among the children and grandchildren
+			int m = 2 * i + 1;
+			if (m + 1 < size && better(heap[m + 1], heap[m], max)) m = m + 1;
+			for (int j = 4 * i + 3 ; j <= 4 * i + 6 && j < size ; j++) {
+				if (better(heap[j], heap[m], max)) m = j;
+			}
+
+			if (!better(heap[m], heap[i], max)) break;
+			swap(i, m);
+
+			// a child is on a level of the opposite kind, so it has no descendants to fix
+			if (m <= 2 * i + 2) break;
+
+			int parent = (m - 1) / 2;
+			if (better(heap[parent], heap[m], max)) swap(m, parent);
+			i = m;
+		}
+	}
+}
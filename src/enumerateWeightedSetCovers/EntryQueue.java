@@ -0,0 +1,84 @@
+package enumerateWeightedSetCovers;
+
+/**
+  * A priority queue of QueueEntry objects, ordered by weight, that holds at most a given number of entries. When
+  * the queue is full, a new entry is added only if it is better than the worst entry, which is then removed.
+  * Entries of equal weight may be polled in any order.
+  *
+  * The queue is kept in memory by BoundedQueue, or partly on disk by SpillingQueue.
+  */
+interface EntryQueue {
+
+	/**
+	  * @return the number of entries in the queue
+	  */
+	int size();
+
+	/**
+	  * @return true if there are no entries in the queue
+	  */
+	boolean isEmpty();
+
+	/**
+	  * @return true if the queue holds its maximum number of entries
+	  */
+	boolean isFull();
+
+	/**
+	  * @return the maximum number of entries in the queue
+	  */
+	int getCapacity();
+
+	/**
+	  * @return the estimated memory that the entries of the queue take on the heap, in bytes
+	  */
+	long estimatedBytes();
+
+	/**
+	  * @param weight the weight of a solution
+	  * @return true if an entry with the given weight would be added to the queue
+	  */
+	boolean admits(int weight);
+
+	/**
+	  * Adds an entry to the queue. If the queue is full, the entry is added only if it is better than
+	  * the worst entry in the queue, and then the worst entry is removed
+	  * @param entry the entry to be added
+	  * @return true if the entry was added
+	  */
+	boolean offer(QueueEntry entry);
+
+	/**
+	  * Removes the best entry in the queue
+	  * @return the removed entry, or null if the queue is empty
+	  */
+	QueueEntry poll();
+
+	/**
+	  * @return the weight of the worst entry in the queue, or Integer.MAX_VALUE if the queue is empty
+	  */
+	int worstWeight();
+
+	/**
+	  * Removes the worst entries until the estimated memory of the queue is at most the given number of bytes, and
+	  * lowers the capacity of the queue to the number of remaining entries
+	  * @param maxBytes the estimated memory that the queue may take
+	  * @return the number of removed entries
+	  */
+	int shrinkTo(long maxBytes);
+
+	/**
+	  * Returns the entries of the queue that are in memory, in an order in which offering them, followed by the
+	  * entries of the spilled runs, to an empty queue of the same kind and capacity restores the queue (up to the
+	  * order of entries of equal weight)
+	  * @return a new array with the entries
+	  */
+	QueueEntry[] toArray();
+
+	/**
+	  * Returns the entries of the queue that are on disk, without reading them. The runs do not change when the
+	  * queue changes, so they can be written by another thread (see SpillingQueue.SpilledRun)
+	  * @return the runs of entries on disk, in order
+	  */
+	SpillingQueue.SpilledRun[] spilledRuns();
+}
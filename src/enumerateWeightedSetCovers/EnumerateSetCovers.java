@@ -1,84 +1,211 @@
 package enumerateWeightedSetCovers;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
-import java.util.PriorityQueue;
 import java.util.BitSet;
-import java.util.HashSet;
-import java.io.FileNotFoundException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 public class EnumerateSetCovers {
 
-	// set cover problem to be solved
+	// set cover problem to be solved (the reduced problem, if the problem given to the enumeration is reduced)
 	private SetCoverProblem problem;
 	
+	// whether the problem is reduced before it is enumerated, and whether the reduction removes dominated sets
+	private boolean reduce = false;
+	private boolean removeDominated = false;
+	
+	// the reduction of the problem given to the current enumeration, used to map the results back to it (or null)
+	private ProblemReduction reduction;
+	
+	// the problem given to the current enumeration, and its checksum (see EnumerationCheckpoint.checksum), 
+	// which is computed when the first checkpoint is taken (or null until then)
+	private SetCoverProblem originalProblem;
+	private Long originalChecksum;
+	
 	// number of sets in the problem
 	private int numOfSets;
 	
 	// size of universe
 	private int universeSize;
 	
-	// size of intervals for logging
-	private int interval = StatisticsLogger.getStat("interval");
+	// size of intervals for logging (in number of results)
+	private int interval = 500;
+	
+	// metrics of the enumerations run by this enumerator, shared with its greedy algorithms
+	private EnumerationMetrics metrics;
+	
+	// distribution of the size of the queue when an entry is popped
+	private EnumerationMetrics.Histogram queueSizes;
+	
+	// distribution of the number of branches of an expanded Q1 entry
+	private EnumerationMetrics.Histogram branchFanOuts;
+	
+	// number of non-redundant results that were dropped since they were already returned
+	private LongAdder duplicates;
+	
+	// number of branches that were dropped without running the greedy algorithm, as they could not enter the queue
+	private LongAdder prunedBranches;
 	
 	// starting time 
 	private long startingTime;
 
-	// weight of the worst entry in the queue. (once the queue has the maximum amount, should not add worse solutions)
-	private int worstWeightInQueue = 0;
-	
 	// maximum number of results to be generated
 	private int maxResults;
+	
+	// whether only non-redundant results are generated
+	private boolean nonRedundant;
+	
+	// number of results generated so far
+	private int numResults;
+	
+	// lowest weight of a result in the current logging interval
+	private int bestScoreInInterval;
+	
+	// weight of the queue entry of the last result (which is higher than that of the result if it was made non-redundant)
+	private int lastEntryWeight;
+	
+	// the time allowed for an enumeration, and the time at which the current enumeration stops (in nanoseconds), 
+	// or Long.MAX_VALUE if there is no time limit
+	private long timeLimit = Long.MAX_VALUE;
+	private long deadline;
+	
+	// the estimated memory that the queue may take, in bytes (Long.MAX_VALUE if it is not limited)
+	private long queueMemoryLimit = Long.MAX_VALUE;
+	
+	// the directory to which the queue spills its entries, or null if the queue is kept in memory, and the estimated 
+	// memory of the entries that it keeps in memory (see SpillingQueue)
+	private String spillDirectory;
+	private long spillHeadBytes;
+	
+	// whether the results of the current enumeration are the same as without a memory limit (see isExact)
+	private boolean exact;
+	
+	// whether the current enumeration was stopped by its time limit
+	private boolean timedOut;
+	
+	// whether an entry is being expanded. stays true if the expansion failed, as the queue then misses part of the 
+	// search space, so the enumeration can no longer be exact or checkpointed
+	private boolean expanding;
+	
+	// number of queue entries that were evicted to keep the queue within its memory limit
+	private LongAdder evictedEntries;
+	
+	// the file to which checkpoints are written periodically, or null if they are not, and the time between checkpoints 
+	// (in nanoseconds)
+	private String checkpointFile;
+	private long checkpointInterval;
+	
+	// the time at which the last checkpoint of the current enumeration was taken
+	private long lastCheckpoint;
+	
+	// the thread writing the last checkpoint (or null), and the error with which the last write failed (or null)
+	private Thread checkpointWriter;
+	private volatile IOException checkpointFailure;
+	
+	// the time for which the enumeration was paused to take every checkpoint
+	private EnumerationMetrics.Histogram checkpointPauses;
+	
+	// whether no result was generated yet
+	private boolean first;
+	
+	// fingerprints of the non-redundant results generated so far (used to avoid returning the same result twice)
+	private FingerprintSet printedAlready;
+	
+	// whether results with equal fingerprints are also compared set by set (see FingerprintSet)
+	private boolean exactDeduplication = false;
+	
+	// scratch array used for making results non-redundant (see SetCoverProblem.makeNonRedundant)
+	private int[] coverCount;
+	
+	// the entry of the last result returned, whose expansion is postponed until the next result is requested (or null)
+	private QueueEntry toExpand;
 		
+	// greedy algorithm used to solve the subproblems. kept across calls so that its scratch arrays are reused
+	private GreedyMinSetCover greedy;
+	
+	// cache of the greedy solutions of subproblems of the current enumeration, or null if solutions are not cached
+	private GreedyCache greedyCache;
+	
+	// the maximal estimated memory of the greedy cache, in bytes (0 if solutions are not cached)
+	private long greedyCacheBytes = 0;
+	
+	// executor used to solve the branches of Q1 entries concurrently, or null if they are solved sequentially
+	private ExecutorService executor;
+	
+	// greedy algorithms used by the threads of the executor, one per thread (since each keeps its own scratch arrays)
+	private ThreadLocal<GreedyMinSetCover> workerGreedy = new ThreadLocal<GreedyMinSetCover>() {
+		protected GreedyMinSetCover initialValue() {
+			return new GreedyMinSetCover(metrics);
+		}
+	};
+	
 	// priority queue used in the algorithm	
 	// different from the pseudocode in that we use a single queue for elements of both Q1 and Q2 
-	private PriorityQueue<QueueEntry> pq = new PriorityQueue<QueueEntry>();
+	// the queue holds at most maxResults entries, as worse entries can never be among the results
+	private EntryQueue pq;
 			
 	// adds an entry to the queue
-	// if the queue contains the maximum number of elements, then only adds an entry if it is better than the current worst
-	private void addToQueue(QueueEntry entry, PriorityQueue<QueueEntry> pq) {
+	// if the queue contains the maximum number of elements, then only adds an entry if it is better than the current worst, 
+	// which is then removed from the queue
+	private void addToQueue(QueueEntry entry, EntryQueue pq) {
 		
-			if (pq.size() < maxResults) {
-				
-				pq.add(entry);
-				int weight = entry.sol.getWeight();
-				if (weight > worstWeightInQueue) 
-					worstWeightInQueue = weight;
-			}
-			else {
-				if (entry.sol.getWeight() < worstWeightInQueue) pq.add(entry);
-			}
+			pq.offer(entry);
 	}
 	
 	
 	// the part of the algorithm that adds elements to Q2 of the pseudo code while processing entries from Q1
-	private void addToQ2WhileProcessingQ1(QueueEntry entry, PriorityQueue<QueueEntry> pq) {
+	// sets and third are the sets of the solution and the third part of the entry
+	private void addToQ2WhileProcessingQ1(QueueEntry entry, FixedBitSet sets, FixedBitSet third, EntryQueue pq) {
 		
-		BitSet newInThird = (BitSet)entry.third.clone();
-		newInThird.andNot(entry.sol.getSolution());
-		if (!newInThird.isEmpty()){
-					
-			int bestSetToAdd = -1;
-			int bestWeight = Integer.MAX_VALUE;
-			for (int i = newInThird.nextSetBit(0) ; i != -1 ; i = newInThird.nextSetBit(i+1)) {
-				int weight = problem.getWeight(i);
-				if (weight < bestWeight) {
-					bestWeight = weight;
-					bestSetToAdd = i;
-				}
+		// the lightest set in third that is not in the solution
+		int bestSetToAdd = -1;
+		int bestWeight = Integer.MAX_VALUE;
+		for (int i = third.nextSetBitAndNot(sets, 0) ; i != -1 ; i = third.nextSetBitAndNot(sets, i+1)) {
+			int weight = problem.getWeight(i);
+			if (weight < bestWeight) {
+				bestWeight = weight;
+				bestSetToAdd = i;
 			}
+		}
+		if (bestSetToAdd != -1){
 					
-			Solution newSolution = (Solution)(entry.sol.clone());
+			Solution newSolution = entry.getSolution();
 			newSolution.addSet(bestSetToAdd, bestWeight);
-			BitSet second = new BitSet();
-			second.set(bestSetToAdd);
-			newInThird.set(bestSetToAdd, false);
-			QueueEntry newEntry = new QueueEntry(newSolution, second, newInThird,false);
+			
+			// the new third part is the old one without the sets of the solution and the set added, 
+			// and is stored as these changes to the old third part
+			int[] removedFromThird = new int[third.cardinality() - third.andNotCardinality(sets) + 1];
+			int k = 0;
+			for (int i = third.nextSetBitAnd(sets, 0) ; i != -1 ; i = third.nextSetBitAnd(sets, i+1)) {
+				removedFromThird[k++] = i;
+			}
+			removedFromThird[k] = bestSetToAdd;
+			SharedBitSet newThird = entry.third.withFlipped(removedFromThird);
+			
+			SharedBitSet second = SharedBitSet.EMPTY.withFlipped(bestSetToAdd);
+			QueueEntry newEntry = new QueueEntry(newSolution, second, newThird, false);
 			addToQueue(newEntry,pq);
 		}
 	}
 	
-	private void addAllSets(Solution sol, BitSet sets) {
+	private void addAllSets(Solution sol, FixedBitSet sets) {
 		
 		for (int i = sets.nextSetBit(0) ; i != -1 ; i = sets.nextSetBit(i+1)) {
 			sol.addSet(i, problem.getWeight(i));
@@ -87,42 +214,312 @@ public class EnumerateSetCovers {
 
 	
 	// process an entry that has been removed from Q1
-	private void dealWithQ1Entry(QueueEntry entry, PriorityQueue<QueueEntry> pq, boolean nonRedundant) {
+	private void dealWithQ1Entry(QueueEntry entry, EntryQueue pq, boolean nonRedundant) {
+		
+		FixedBitSet sets = entry.getSets(numOfSets);
+		FixedBitSet third = entry.third.toFixedBitSet(numOfSets);
+		FixedBitSet second = entry.second.toFixedBitSet(numOfSets);
 		
 		// if we allow redundant entries (i.e., entries that are not minimal with respect to containment), add to Q2
 		// otherwise never add to Q2 (as these will always be redundant)
 		if (!nonRedundant) {
-			addToQ2WhileProcessingQ1(entry, pq);
+			addToQ2WhileProcessingQ1(entry, sets, third, pq);
 		}
 				
-		// add to q1
-		BitSet canBeRemoved = (BitSet)entry.sol.getSolution().clone();
-		canBeRemoved.andNot(entry.second);
-				
-		BitSet third = entry.third;
-		BitSet second = entry.second;
-		second = (BitSet)second.clone();
-		int i=0;
-		for (int si = canBeRemoved.nextSetBit(0) ; si != -1 ; si = canBeRemoved.nextSetBit(si+1)) {
-			
-			third = (BitSet)third.clone();		
-			third.set(si, false);
-			BitSet covered = problem.getCoveredBy(second);
-			Solution newSolution = (new GreedyMinSetCover()).approxSetCover(problem, covered, third); //, nonRedundant);
+		// add to q1 (the sets of the solution that are not in second can be removed)
+		int[] removable = new int[sets.andNotCardinality(second)];
+		int k = 0;
+		for (int i = sets.nextSetBitAndNot(second, 0) ; i != -1 ; i = sets.nextSetBitAndNot(second, i+1)) {
+			removable[k++] = i;
+		}
+		branchFanOuts.record(removable.length);
+		
+		// branch i fixes the sets removable[0], ..., removable[i-1] (in addition to those in second), and forbids removable[i]
+		// all branches share the representation of their second and third parts
+		SharedBitSet[] seconds = entry.second.withFlippedPrefixes(removable);
+		SharedBitSet[] thirds = entry.third.withFlippedPrefixes(removable);
+		
+		// solve the branches (possibly in parallel), and add them to the queue in the order of the branches
+		Solution[] newSolutions = solveBranches(second, third, removable, seconds, thirds);
+		for (int i = 0 ; i < newSolutions.length ; i++) {
 			
-			if (newSolution != null) {
+			if (newSolutions[i] != null) {
 				
-				addAllSets(newSolution, second);
-				QueueEntry newEntry = new QueueEntry(newSolution, second, third, true);
+				QueueEntry newEntry = new QueueEntry(newSolutions[i], seconds[i], thirds[i+1], true);
 				addToQueue(newEntry,pq);
 			}
+		}
+	}
+	
+	// solves the greedy subproblem of every branch of a Q1 entry, where branch i must contain the sets in seconds[i] and may use the sets in thirds[i+1]
+	// (second and third are the parts of the entry itself, i.e., of seconds[0] and thirds[0], and are changed by this method)
+	// if an executor was given, the branches are solved concurrently. the result of branch i, which includes the sets of seconds[i], 
+	// is returned at index i (or null if the branch has no solution, or if its solution would not be added to the queue)
+	private Solution[] solveBranches(FixedBitSet second, FixedBitSet third, int[] removable, final SharedBitSet[] seconds, final SharedBitSet[] thirds) {
+		
+		Solution[] newSolutions = new Solution[removable.length];
+		
+		// once the queue is full, a branch is only added if it is lighter than the worst entry. the worst weight can only 
+		// decrease while the branches are added, so a branch whose sets in second already weigh too much, together with a lower 
+		// bound on the rest of its solution, can be skipped without running the greedy algorithm
+		final int weightLimit = pq.isFull() ? pq.worstWeight() : Integer.MAX_VALUE;
+		final int[] secondWeights = new int[removable.length];
+		int secondWeight = 0;
+		for (int i = second.nextSetBit(0) ; i != -1 ; i = second.nextSetBit(i+1)) {
+			secondWeight += problem.getWeight(i);
+		}
+		for (int i = 0 ; i < removable.length ; i++) {
+			secondWeights[i] = secondWeight;
+			secondWeight += problem.getWeight(removable[i]);
+		}
+		
+		// the elements covered by the sets in second, which are updated as sets are added to second
+		FixedBitSet covered = problem.getCoveredBy(second);
+		
+		if (executor == null || removable.length < 2) {
+			
+			for (int i = 0 ; i < newSolutions.length ; i++) {
+				
+				third.clear(removable[i]);
+				if (secondWeights[i] < weightLimit) {
+					
+					newSolutions[i] = approxSetCover(greedy, covered, third, remainingLimit(weightLimit, secondWeights[i])); //, nonRedundant);
+					if (newSolutions[i] != null) addAllSets(newSolutions[i], second);
+				}
+				else prunedBranches.increment();
+				second.set(removable[i]);
+				problem.addCoveredBy(removable[i], covered);
+			}
+			return newSolutions;
+		}
+		
+		ArrayList<Callable<Solution>> branches = new ArrayList<Callable<Solution>>(removable.length);
+		int[] branchIndices = new int[removable.length];
+		for (int i = 0 ; i < newSolutions.length ; i++) {
 			
-			second = (BitSet)second.clone();
-			second.set(si);
-		}	
+			final int branch = i;
+			final FixedBitSet branchCovered = secondWeights[i] < weightLimit ? new FixedBitSet(covered) : null;
+			problem.addCoveredBy(removable[i], covered);
+			if (branchCovered == null) {
+				prunedBranches.increment();
+				continue;
+			}
+			branchIndices[branches.size()] = i;
+			branches.add(new Callable<Solution>() {
+				public Solution call() {
+					
+					FixedBitSet second = seconds[branch].toFixedBitSet(numOfSets);
+					Solution newSolution = approxSetCover(workerGreedy.get(), branchCovered, thirds[branch+1].toFixedBitSet(numOfSets), 
+							remainingLimit(weightLimit, secondWeights[branch]));
+					if (newSolution != null) addAllSets(newSolution, second);
+					return newSolution;
+				}
+			});
+		}
+		
+		try {
+			List<Future<Solution>> results = executor.invokeAll(branches);
+			for (int i = 0 ; i < results.size() ; i++) {
+				newSolutions[branchIndices[i]] = results.get(i).get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while expanding a queue entry", e);
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException("Failed to solve a branch of a queue entry", e.getCause());
+		}
+		return newSolutions;
+	}
+	
+	// solves a subproblem of the problem with the given greedy algorithm, unless its solution is in the greedy cache
+	private Solution approxSetCover(GreedyMinSetCover greedy, FixedBitSet covered, FixedBitSet legalSets, int weightLimit) {
+		
+		if (greedyCache == null) return greedy.approxSetCover(problem, covered, legalSets, weightLimit);
+		return greedyCache.approxSetCover(greedy, problem, covered, legalSets, weightLimit);
+	}
+	
+	// the weight limit for the part of a branch's solution that is found by the greedy algorithm, given the weight limit of
+	// the whole solution and the weight of the sets that the branch must contain (which is lower than the limit)
+	private static int remainingLimit(int weightLimit, int secondWeight) {
+		
+		return weightLimit == Integer.MAX_VALUE ? Integer.MAX_VALUE : weightLimit - secondWeight;
 	}
 
 	
+	/**
+	  * Creates an enumerator that solves the branches of every queue entry sequentially
+	  */
+	public EnumerateSetCovers() {
+		this(null);
+	}
+	
+	/**
+	  * Creates an enumerator that solves the branches of every queue entry concurrently using the given executor 
+	  * (e.g., a ForkJoinPool). The branches only share the (read-only) problem, and their results are added to the 
+	  * queue in the same order as in the sequential enumerator, so the results do not depend on the executor
+	  * @param executor the executor used for solving branches, or null to solve them sequentially
+	  */
+	public EnumerateSetCovers(ExecutorService executor) {
+		this(executor, new EnumerationMetrics());
+	}
+	
+	/**
+	  * Creates an enumerator that logs its statistics in the given metrics. The metrics may be read (see 
+	  * EnumerationMetrics.snapshot) while an enumeration is in progress, and are accumulated over all the 
+	  * enumerations of the enumerator, so a new enumerator should be given new metrics for every run that is 
+	  * measured separately
+	  * @param executor the executor used for solving branches, or null to solve them sequentially
+	  * @param metrics the metrics of the enumerations of this enumerator
+	  */
+	public EnumerateSetCovers(ExecutorService executor, EnumerationMetrics metrics) {
+		
+		this.executor = executor;
+		this.metrics = metrics;
+		greedy = new GreedyMinSetCover(metrics);
+		queueSizes = metrics.histogram(EnumerationMetrics.QUEUE_SIZE);
+		branchFanOuts = metrics.histogram(EnumerationMetrics.BRANCH_FAN_OUT);
+		duplicates = metrics.counter(EnumerationMetrics.DUPLICATES);
+		prunedBranches = metrics.counter(EnumerationMetrics.PRUNED_BRANCHES);
+		evictedEntries = metrics.counter(EnumerationMetrics.EVICTED_ENTRIES);
+		checkpointPauses = metrics.histogram(EnumerationMetrics.CHECKPOINT_PAUSE);
+	}
+	
+	/**
+	  * @return the metrics of the enumerations of this enumerator
+	  */
+	public EnumerationMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	  * Sets the number of results in every logging interval. After every interval, the time and the lowest weight 
+	  * of a result in the interval are added to the metrics (see EnumerationMetrics.addInterval)
+	  * @param interval the number of results in a logging interval (500 by default)
+	  */
+	public void setLoggingInterval(int interval) {
+		this.interval = interval;
+	}
+	
+	/**
+	  * When only non-redundant results are returned, a result is dropped if it was already returned. By default, 
+	  * this is decided by comparing 128-bit fingerprints of the results, which may (with a negligible probability) 
+	  * drop a new result. Exact deduplication keeps the sets of every result, and compares them as well
+	  * @param exact true if results should be compared set by set when their fingerprints are equal
+	  */
+	public void setExactDeduplication(boolean exact) {
+		this.exactDeduplication = exact;
+	}
+	
+	/**
+	  * Limits the time of every enumeration, making it an anytime enumeration: once the time limit passes, no more 
+	  * results are returned (and the iterator of the enumeration ends), so the results are the best ranked covers found 
+	  * until then. The limit is checked between results, so an entry whose expansion started is always expanded 
+	  * completely, and the queue still splits the rest of the search space. The results that are returned are the 
+	  * same as those returned first without a time limit, and hasTimedOut tells whether the enumeration was stopped 
+	  * by the limit
+	  * @param millis the time limit of an enumeration, in milliseconds from its start, or 0 for no time limit (the default)
+	  */
+	public void setTimeLimit(long millis) {
+		this.timeLimit = millis > 0 ? millis * 1000000 : Long.MAX_VALUE;
+	}
+	
+	/**
+	  * Limits the estimated memory of the queue. Whenever the queue grows beyond the limit, its worst entries are evicted, 
+	  * and from then on it holds at most as many entries as remained (so a new entry must be better than the worst). The enumeration 
+	  * then goes on within the limit, but since an evicted entry may have led to some of the later results, the ranking 
+	  * is no longer exact (see isExact)
+	  * @param bytes the estimated memory that the queue may take, in bytes, or 0 for no limit (the default)
+	  */
+	public void setQueueMemoryLimit(long bytes) {
+		this.queueMemoryLimit = bytes > 0 ? bytes : Long.MAX_VALUE;
+	}
+	
+	/**
+	  * Keeps only the best entries of the queue in memory, and spills the rest of them to disk, so that an enumeration 
+	  * of many results runs within a fixed memory budget for its queue (see SpillingQueue). Entries are still polled 
+	  * in the order of their weights, but entries of equal weight may be polled and evicted in another order than 
+	  * from a queue in memory. The enumeration then expands other entries, so the set of results can change (and not 
+	  * only the order of results of equal weight)
+	  * @param directory the directory in which the spilled entries are written, or null to keep the queue in memory (the default)
+	  * @param headBytes the estimated memory of the entries that are kept in memory, in bytes
+	  */
+	public void setQueueSpilling(String directory, long headBytes) {
+		
+		this.spillDirectory = directory;
+		this.spillHeadBytes = headBytes;
+	}
+	
+	/**
+	  * @return true if the results of the current (or last) enumeration are the same as those of an enumeration without 
+	  * a memory limit, i.e., no queue entries were evicted due to the memory limit
+	  */
+	public boolean isExact() {
+		return exact;
+	}
+	
+	/**
+	  * @return true if the current (or last) enumeration was stopped by its time limit before finding all its results
+	  */
+	public boolean hasTimedOut() {
+		return timedOut;
+	}
+	
+	/**
+	  * Determines whether problems are reduced before they are enumerated (see ProblemReduction). The enumeration 
+	  * then runs on the reduced problem, and every result is mapped back to the sets of the given problem before 
+	  * it is returned. Fixing mandatory sets keeps all the covers of the problem, while removing dominated sets 
+	  * drops the covers that use them (but keeps the lightest covers)
+	  * @param reduce true if problems should be reduced (false by default)
+	  * @param removeDominated true if the reduction should also remove duplicate and dominated sets
+	  */
+	public void setReduction(boolean reduce, boolean removeDominated) {
+		
+		this.reduce = reduce;
+		this.removeDominated = removeDominated;
+	}
+	
+	/**
+	  * Determines whether the solutions that the greedy algorithm finds for subproblems are cached, so that a 
+	  * subproblem that recurs (with the same covered elements and legal sets) within an enumeration is not solved 
+	  * again. The cache evicts the least recently used solutions once their estimated memory exceeds the given 
+	  * size, and counts its hits and misses in the metrics (see GreedyCache)
+	  * @param maxBytes the maximal estimated memory of the cache, in bytes, or 0 if solutions should not be cached (the default)
+	  */
+	public void setGreedyCache(long maxBytes) {
+		this.greedyCacheBytes = maxBytes;
+	}
+	
+	/**
+	  * Takes a checkpoint of every enumeration periodically, from which the enumeration can be resumed (see resume). 
+	  * A checkpoint is taken between two results, once the given time has passed since the previous one. The 
+	  * enumeration is only paused for copying references to the queue entries and the fingerprints of the results 
+	  * (see EnumerationMetrics.CHECKPOINT_PAUSE), and the checkpoint is written to the file by a background thread. 
+	  * A checkpoint is skipped if the previous one is still being written, and if writing a checkpoint fails, the 
+	  * enumeration fails when it next takes one
+	  * @param fileName the file to which checkpoints are written (replacing the previous checkpoint), or null to stop taking checkpoints
+	  * @param intervalMillis the time between checkpoints, in milliseconds
+	  */
+	public void setCheckpointing(String fileName, long intervalMillis) {
+		
+		this.checkpointFile = fileName;
+		this.checkpointInterval = intervalMillis * 1000000;
+	}
+	
+	/**
+	  * Writes a checkpoint of the current enumeration, from which it can be resumed (see resume). Should be called 
+	  * between results, by the thread consuming them. An enumeration stopped by its time limit can be checkpointed 
+	  * and resumed, as the limit never stops the expansion of an entry
+	  * @param fileName the file to which the checkpoint is written
+	  * @throws IllegalStateException if the expansion of an entry failed, so the queue misses part of the search space
+	  */
+	public void writeCheckpoint(String fileName) throws IOException {
+		
+		if (pq == null) throw new IllegalStateException("No enumeration to checkpoint");
+		capture().write(fileName);
+	}
+	
 	/** 
 	  * enumerate set covers
 	  * @param problem is the weighted set cover problem
@@ -131,55 +528,337 @@ public class EnumerateSetCovers {
 	  */
 	public void enumerate(SetCoverProblem problem, int maxResults, boolean nonRedundant) {
 		
+		Iterator<Solution> results = iterator(problem, maxResults, nonRedundant);
+		while (results.hasNext()) {
+			results.next();
+		}
+	}
+	
+	/**
+	  * Enumerates set covers lazily, in the order in which they are produced. Each cover is returned as soon as 
+	  * its queue entry is popped, and the entry is only expanded when the next cover is requested, so no work is 
+	  * done ahead of the consumer. An enumerator runs a single enumeration at a time, so calling this method 
+	  * (or enumerate, or stream) again abandons the previous enumeration
+	  * @param problem is the weighted set cover problem
+	  * @param maxResults is the maximum number of results to be returned
+	  * @param nonRedundant determines whether only non-redundant results should be returned
+	  * @return an iterator over the set covers
+	  */
+	public Iterator<Solution> iterator(SetCoverProblem problem, int maxResults, boolean nonRedundant) {
+		
+		start(problem, maxResults, nonRedundant, null, null, 0);
+		return results();
+	}
+	
+	/**
+	  * Enumerates the set covers of a shard of the search space, given by queue entries of another enumeration of the 
+	  * same problem (see drainQueue). The results are those that the other enumeration would have returned from these 
+	  * entries, in the same order
+	  * @param problem the problem of the other enumeration, which is reduced in the same way
+	  * @param maxResults the maximum number of results of the other enumeration
+	  * @param nonRedundant determines whether only non-redundant results should be returned
+	  * @param entries the entries with which the queue starts
+	  * @param returned the fingerprints of the results that the other enumeration already returned (see returnedResults), 
+	  * which are not returned again, or null
+	  * @param numReturned the number of results that the other enumeration already returned, so that at most 
+	  * maxResults-numReturned results are returned
+	  * @return an iterator over the set covers
+	  */
+	Iterator<Solution> shardIterator(SetCoverProblem problem, int maxResults, boolean nonRedundant, QueueEntry[] entries, 
+			FingerprintSet returned, int numReturned) {
+		
+		start(problem, maxResults, nonRedundant, entries, returned, numReturned);
+		return results();
+	}
+	
+	/**
+	  * Expands the entry of the last result, which is otherwise postponed until the next result is requested
+	  * @return the number of entries in the queue
+	  */
+	int expandPending() {
+		
+		if (toExpand != null) {
+			expand(toExpand);
+			toExpand = null;
+		}
+		return pq.size();
+	}
+	
+	/**
+	  * Removes all entries from the queue (after expanding the entry of the last result), so that they can be 
+	  * enumerated elsewhere (see shardIterator). The current enumeration then has no more results
+	  * @return the entries, ordered by weight
+	  */
+	QueueEntry[] drainQueue() {
+		
+		expandPending();
+		QueueEntry[] entries = new QueueEntry[pq.size()];
+		for (int i = 0 ; i < entries.length ; i++) {
+			entries[i] = pq.poll();
+		}
+		return entries;
+	}
+	
+	/**
+	  * @return a copy of the fingerprints of the non-redundant results returned so far
+	  */
+	FingerprintSet returnedResults() {
+		return printedAlready.copy();
+	}
+	
+	/**
+	  * @return the weight of the queue entry of the last result, by which the results are ordered
+	  */
+	int lastEntryWeight() {
+		return lastEntryWeight;
+	}
+	
+	/**
+	  * Resumes an enumeration from a checkpoint (see setCheckpointing and writeCheckpoint), returning the results 
+	  * that the enumeration would have returned after the checkpoint, in the same order. The maximum number of 
+	  * results, whether they are non-redundant and the reduction of the problem are those of the enumeration, and 
+	  * the metrics of the enumeration up to the checkpoint are added to the metrics of this enumerator. The time 
+	  * limit (see setTimeLimit) counts from the resumption, while the logging intervals count the time before the 
+	  * checkpoint as well
+	  * @param problem the problem given to the enumeration
+	  * @param fileName the file of the checkpoint
+	  * @return an iterator over the remaining set covers
+	  * @throws IllegalArgumentException if the checkpoint was taken for a different problem
+	  */
+	public Iterator<Solution> resume(SetCoverProblem problem, String fileName) throws IOException {
+		
+		EnumerationCheckpoint checkpoint = EnumerationCheckpoint.read(fileName);
+		if (checkpoint.problemChecksum != EnumerationCheckpoint.checksum(problem)) 
+			throw new IllegalArgumentException("The checkpoint " + fileName + " is of a different problem");
+		restore(problem, checkpoint);
+		return results();
+	}
+	
+	// an iterator over the results of the current enumeration
+	private Iterator<Solution> results() {
+		
+		return new Iterator<Solution>() {
+			
+			// the next result, if it was already computed
+			private Solution next = null;
+			
+			public boolean hasNext() {
+				
+				if (next == null) next = nextResult();
+				return next != null;
+			}
+			
+			public Solution next() {
+				
+				if (!hasNext()) throw new NoSuchElementException();
+				Solution result = next;
+				next = null;
+				return result;
+			}
+		};
+	}
+	
+	/**
+	  * Enumerates set covers lazily as a sequential ordered stream (see iterator)
+	  * @param problem is the weighted set cover problem
+	  * @param maxResults is the maximum number of results to be returned
+	  * @param nonRedundant determines whether only non-redundant results should be returned
+	  * @return a stream of the set covers
+	  */
+	public Stream<Solution> stream(SetCoverProblem problem, int maxResults, boolean nonRedundant) {
+		
+		Iterator<Solution> results = iterator(problem, maxResults, nonRedundant);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+	
+	// initializes the state of an enumeration, and adds the first entry to the queue, or the given entries (and the 
+	// fingerprints and number of results that were already returned) if the enumeration is of a shard
+	private void start(SetCoverProblem problem, int maxResults, boolean nonRedundant, QueueEntry[] entries, 
+			FingerprintSet returned, int numReturned) {
+		
 		startingTime = System.nanoTime();
+		exact = true;
+		problem = prepare(problem, reduce, removeDominated, maxResults, nonRedundant, maxResults);
+		printedAlready = returned != null ? returned : new FingerprintSet(exactDeduplication);
+		toExpand = null;
+		numResults = numReturned;
+		bestScoreInInterval = Integer.MAX_VALUE;
+		first = true;
+		
+		if (entries != null) {
+			for (QueueEntry entry : entries) {
+				addToQueue(entry, pq);
+			}
+			return;
+		}
+		
+		Solution s = greedy.approxSetCover(problem); 
+		
+		if (s != null) {
+			SharedBitSet none = SharedBitSet.EMPTY;
+			BitSet allSets = new BitSet(numOfSets);
+			allSets.set(0, numOfSets);
+			SharedBitSet all = new SharedBitSet(allSets);
+			//if (nonRedundant) s = problem.makeNonRedundant(s, new BitSet());
+			addToQueue(new QueueEntry(s, none, all, true), pq);
+		}
+	}
+	
+	// initializes the state of an enumeration from a checkpoint, including its queue
+	private void restore(SetCoverProblem problem, EnumerationCheckpoint checkpoint) throws IOException {
+		
+		startingTime = System.nanoTime() - checkpoint.elapsedTime;
+		exact = checkpoint.exact;
+		prepare(problem, checkpoint.reduce, checkpoint.removeDominated, checkpoint.maxResults, checkpoint.nonRedundant, checkpoint.queueCapacity);
+		printedAlready = checkpoint.printedAlready != null ? checkpoint.printedAlready : new FingerprintSet(exactDeduplication);
+		toExpand = checkpoint.toExpand;
+		numResults = checkpoint.numResults;
+		bestScoreInInterval = checkpoint.bestScoreInInterval;
+		first = checkpoint.first;
+		metrics.read(new DataInputStream(new ByteArrayInputStream(checkpoint.metrics)));
+		
+		// offering the entries in the order in which they were taken restores the same queue (see EntryQueue.toArray)
+		for (QueueEntry entry : checkpoint.entries) {
+			pq.offer(entry);
+		}
+	}
+	
+	// initializes the state shared by new and resumed enumerations, and returns the problem that is enumerated 
+	// (which is the reduced problem if the problem is reduced)
+	private SetCoverProblem prepare(SetCoverProblem problem, boolean reduce, boolean removeDominated, int maxResults, 
+			boolean nonRedundant, int queueCapacity) {
+		
+		deadline = timeLimit == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeLimit;
+		timedOut = false;
+		expanding = false;
+		lastCheckpoint = System.nanoTime();
+		checkpointFailure = null;
+		originalProblem = problem;
+		originalChecksum = null;
+		reduction = null;
+		if (reduce) {
+			reduction = new ProblemReduction(problem, removeDominated);
+			problem = reduction.getReducedProblem();
+		}
 		this.problem = problem;
 		this.maxResults = maxResults;
+		this.nonRedundant = nonRedundant;
+		pq = spillDirectory != null ? new SpillingQueue(queueCapacity, spillDirectory, spillHeadBytes) : new BoundedQueue(queueCapacity);
 		numOfSets = problem.getNumberOfSets();
 		universeSize = problem.getUniverseSize();
-		HashSet<BitSet> printedAlready = new HashSet<BitSet>();
+		greedyCache = greedyCacheBytes > 0 ? new GreedyCache(greedyCacheBytes, metrics) : null;
+		coverCount = new int[universeSize];
+		return problem;
+	}
+	
+	// takes a checkpoint of the current enumeration, which must be between two results
+	// the queue entries are immutable, so only the references to them are copied, and the entries on disk are only 
+	// taken as the bounds of their runs
+	private EnumerationCheckpoint capture() throws IOException {
 		
-		Solution s = (new GreedyMinSetCover()).approxSetCover(problem); 
-		boolean first = true;
+		if (expanding) throw new IllegalStateException("An entry of the enumeration was not completely expanded, so it cannot be checkpointed");
+		EnumerationCheckpoint checkpoint = new EnumerationCheckpoint();
+		if (originalChecksum == null) originalChecksum = EnumerationCheckpoint.checksum(originalProblem);
+		checkpoint.problemChecksum = originalChecksum;
+		checkpoint.reduce = reduction != null;
+		checkpoint.removeDominated = reduction != null && reduction.removesDominated();
+		checkpoint.maxResults = maxResults;
+		checkpoint.nonRedundant = nonRedundant;
+		checkpoint.numResults = numResults;
+		checkpoint.first = first;
+		checkpoint.bestScoreInInterval = bestScoreInInterval;
+		checkpoint.exact = exact;
+		checkpoint.elapsedTime = System.nanoTime() - startingTime;
+		checkpoint.queueCapacity = pq.getCapacity();
+		checkpoint.entries = pq.toArray();
+		checkpoint.spilledRuns = pq.spilledRuns();
+		checkpoint.toExpand = toExpand;
+		checkpoint.printedAlready = nonRedundant ? printedAlready.copy() : null;
 		
-		if (s != null) {
-			BitSet none = new BitSet(numOfSets);
-			BitSet all = new BitSet(numOfSets);
-			all.set(0, numOfSets);
-			//if (nonRedundant) s = problem.makeNonRedundant(s, new BitSet());
-			//StatisticsLogger.changeStat("firstWeight", s.getWeight());
-			addToQueue(new QueueEntry(s, none, all, true), pq);
+		ByteArrayOutputStream metricsBytes = new ByteArrayOutputStream();
+		metrics.write(new DataOutputStream(metricsBytes));
+		checkpoint.metrics = metricsBytes.toByteArray();
+		return checkpoint;
+	}
+	
+	// takes a checkpoint if it is time to take one, and writes it in the background
+	private void checkpointIfNeeded() {
+		
+		if (checkpointFile == null || System.nanoTime() - lastCheckpoint < checkpointInterval) return;
+		if (checkpointFailure != null) throw new RuntimeException("Failed to write a checkpoint to " + checkpointFile, checkpointFailure);
+		if (checkpointWriter != null && checkpointWriter.isAlive()) return;
+		
+		long pauseStart = System.nanoTime();
+		final EnumerationCheckpoint checkpoint;
+		try {
+			checkpoint = capture();
 		}
+		catch (IOException e) {
+			throw new RuntimeException("Failed to take a checkpoint", e);
+		}
+		final String fileName = checkpointFile;
+		checkpointWriter = new Thread(new Runnable() {
+			public void run() {
+				
+				try {
+					checkpoint.write(fileName);
+				}
+				catch (IOException e) {
+					checkpointFailure = e;
+				}
+			}
+		}, "checkpoint-writer");
+		checkpointWriter.setDaemon(true);
+		checkpointWriter.start();
+		lastCheckpoint = System.nanoTime();
+		checkpointPauses.record(lastCheckpoint - pauseStart);
+	}
+	
+	// finds the next result of the enumeration
+	// returns null if there are no more results
+	private Solution nextResult() {
 		
-		int numResults = 0;
-		int bestScoreInInterval = Integer.MAX_VALUE;
+		// expand the entry of the previous result, which was postponed until this result was requested
+		if (toExpand != null) {
+			expand(toExpand);
+			toExpand = null;
+		}
 		
-		while (!pq.isEmpty()) {
+		while (numResults < maxResults && !pq.isEmpty()) {
+			
+			if (pastDeadline()) {
+				timedOut = true;
+				return null;
+			}
 			
+			queueSizes.record(pq.size());
 			QueueEntry entry = pq.poll();
 			
-			Solution newSolution = entry.sol;
+			Solution newSolution = entry.getSolution();
 			boolean foundNew = true;
 			
 			if (nonRedundant) {
-				newSolution = problem.makeNonRedundant(entry.sol, new BitSet());
-				if (printedAlready.contains(newSolution.getSolution())) foundNew = false;
-				else {
-					printedAlready.add((BitSet)newSolution.getSolution().clone());
+				newSolution = problem.makeNonRedundant(newSolution, new BitSet(), coverCount);
+				if (!printedAlready.add(newSolution.getSolution())) {
+					foundNew = false;
+					duplicates.increment();
 				}
 			}
 			
 			if (foundNew) {
 			
+				if (reduction != null) newSolution = reduction.toOriginal(newSolution);
 				numResults++;
+				lastEntryWeight = entry.getWeight();
 				if (newSolution.getWeight() < bestScoreInInterval) {
 					bestScoreInInterval = newSolution.getWeight();
 				}
 				
-				if (StatisticsLogger.minStat("lowestWeight", newSolution.getWeight()))
-					StatisticsLogger.changeStat("whenBestFound", numResults);
+				if (metrics.minValue(EnumerationMetrics.LOWEST_WEIGHT, newSolution.getWeight()))
+					metrics.setValue(EnumerationMetrics.WHEN_BEST_FOUND, numResults);
 				
 				if (first) {
-					StatisticsLogger.changeStat("firstWeight", newSolution.getWeight());	
+					metrics.setValue(EnumerationMetrics.FIRST_WEIGHT, newSolution.getWeight());
 					first = false;
 				}
 			}
@@ -187,32 +866,59 @@ public class EnumerateSetCovers {
 			
 			if (numResults % interval == 0 && bestScoreInInterval != Integer.MAX_VALUE) {
 				
-					StatisticsLogger.addInterval((System.nanoTime() - startingTime)/1000000, bestScoreInInterval);
+					metrics.addInterval((System.nanoTime() - startingTime)/1000000, bestScoreInInterval);
 					bestScoreInInterval = Integer.MAX_VALUE;
 			}
 			
-			if (numResults == maxResults) {
-				break;
-			}
-			
-			if (entry.fromQ1) {
+			if (foundNew) {
 				
-				dealWithQ1Entry(entry, pq, nonRedundant);
-			}
-			else {
-				dealWithQ2Entry(entry, pq);
+				// the entry does not need to be expanded once the maximum number of results is reached
+				if (numResults < maxResults) toExpand = entry;
+				checkpointIfNeeded();
+				return newSolution;
 			}
+			
+			expand(entry);
 		}
 		
 		//if (pq.isEmpty()) System.out.println("Empty! Number of results:" + numResults);
+		return null;
+	}
+	
+	// adds the entries derived from a popped entry to the queue
+	// if the queue then takes more memory than allowed, its worst entries are evicted, and the ranking is no longer exact
+	private void expand(QueueEntry entry) {
+		
+		// the previous expansion failed, so some of the search space is not in the queue
+		if (expanding) exact = false;
+		expanding = true;
+		if (entry.fromQ1) {
+			
+			dealWithQ1Entry(entry, pq, nonRedundant);
+		}
+		else {
+			dealWithQ2Entry(entry, pq);
+		}
+		
+		if (pq.estimatedBytes() > queueMemoryLimit) {
+			
+			evictedEntries.add(pq.shrinkTo(queueMemoryLimit));
+			exact = false;
+		}
+		expanding = false;
+	}
+	
+	// whether the time limit of the enumeration has passed
+	private boolean pastDeadline() {
+		return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
 	}
 	
 	
 	// deal with an entry from Q2
-	private void dealWithQ2Entry(QueueEntry entry, PriorityQueue<QueueEntry> pq) {
+	private void dealWithQ2Entry(QueueEntry entry, EntryQueue pq) {
 		
-		BitSet second = entry.second;
-		BitSet third = entry.third;
+		FixedBitSet second = entry.second.toFixedBitSet(numOfSets);
+		FixedBitSet third = entry.third.toFixedBitSet(numOfSets);
 		if (!third.isEmpty()) {
 			int bestSetToAdd = -1;
 			int bestWeight = Integer.MAX_VALUE;
@@ -223,81 +929,37 @@ public class EnumerateSetCovers {
 					bestSetToAdd = i;
 				}
 			}
-			Solution newSolution1 = (Solution)(entry.sol.clone());
-			Solution newSolution2 = (Solution)(entry.sol.clone());
+			Solution newSolution1 = entry.getSolution();
+			Solution newSolution2 = entry.getSolution();
 			newSolution1.addSet(bestSetToAdd, bestWeight);
 			newSolution2.addSet(bestSetToAdd, bestWeight);
 			newSolution1.removeSet(second.nextSetBit(0), problem.getWeight(bestSetToAdd));
-					
-			BitSet single = new BitSet();
-			single.set(bestSetToAdd);
-			BitSet newThird1 = (BitSet)third.clone();
-			BitSet newThird2 = (BitSet)third.clone();
-			newThird1.set(bestSetToAdd, false);
-			newThird2.set(bestSetToAdd, false);
-			addToQueue(new QueueEntry(newSolution1, single, newThird1, false), pq);
-			addToQueue(new QueueEntry(newSolution2, single, newThird2, false), pq);
+			
+			// both new entries have the same (immutable) second and third parts
+			SharedBitSet single = SharedBitSet.EMPTY.withFlipped(bestSetToAdd);
+			SharedBitSet newThird = entry.third.withFlipped(bestSetToAdd);
+			addToQueue(new QueueEntry(newSolution1, single, newThird, false), pq);
+			addToQueue(new QueueEntry(newSolution2, single, newThird, false), pq);
 		}
 	}
 	
-	public static void main(String[] inp) throws FileNotFoundException{
+	public static void main(String[] inp) throws IOException{
 		
-		if (inp.length != 3) {
+		if (inp.length != 3 && inp.length != 4) {
 			
-			System.out.println("Usage: java EnumerateSetCovers <input file> <num results> <nonRedundant?>");
+			System.out.println("Usage: java EnumerateSetCovers <input file> <num results> <nonRedundant?> [<num threads>]");
 			System.exit(-1);
 		}
 		
-		StatisticsLogger.changeStat("interval", 500);
-		EnumerateSetCovers enumsc = new EnumerateSetCovers();
-		enumsc.enumerate(SetCoverProblemGenerator.generateSetCoverProblem(inp[0]), Integer.parseInt(inp[1]), Boolean.parseBoolean(inp[2]));
-		System.out.println("First Weight: " + StatisticsLogger.getStat("firstWeight"));
-		System.out.println("Best Weight: " + StatisticsLogger.getStat("lowestWeight") + " at " + StatisticsLogger.getStat("whenBestFound"));
-	}
-}
-
-
-/**
-  * Class QueueEntry is used as entry values for the priority queue
-  * Each entry contains 4 fields:
-  *    - sol: the solution represented by the entry
-  *    - second: a bit set indicating which sets are allowed in the "second" part of the queue entry as in the paper
-  *    - third: a bit set indicating which sets are allowed in the "third" part of the queue entry as in the paper
-  *    - fromQ1: a boolean value indicating if this is a Q1 entry or Q2 entry (from the paper)
-  */
-class QueueEntry implements Comparable<QueueEntry> {
-
-	Solution sol;
-	BitSet second;
-	BitSet third;
-	boolean fromQ1;
-	
-	public QueueEntry(Solution sol, BitSet second, BitSet third, boolean fromQ1) {
-		
-		this.sol = sol;
-		this.second = second;
-		this.third = third;
-		this.fromQ1 = fromQ1;
-	}
-	
-	public int compareTo(QueueEntry other) {
-		return sol.getWeight() - other.sol.getWeight();
-	}
-	
-	static String bitSetString(BitSet bs) {
+		ForkJoinPool pool = null;
+		if (inp.length == 4 && Integer.parseInt(inp[3]) > 1) pool = new ForkJoinPool(Integer.parseInt(inp[3]));
 		
-		String s = "{";
-		for (int i = bs.nextSetBit(0); i != -1 ; i = bs.nextSetBit(i+1)) {
-			s += "" + i + " ";
-		}
-		return s + "}";
-	}
-	
-	public String toString() {
+		EnumerateSetCovers enumsc = new EnumerateSetCovers(pool);
+		enumsc.enumerate(SetCoverProblemGenerator.generateSetCoverProblem(inp[0]), Integer.parseInt(inp[1]), Boolean.parseBoolean(inp[2]));
+		if (pool != null) pool.shutdown();
 		
-		String queue = "Q1: ";
-		if (!fromQ1) queue = "Q2: ";
-		return queue + sol.toString() + " | " + bitSetString(second) + " | " + bitSetString(third);
+		EnumerationMetrics metrics = enumsc.getMetrics();
+		System.out.println("First Weight: " + metrics.getValue(EnumerationMetrics.FIRST_WEIGHT));
+		System.out.println("Best Weight: " + metrics.getValue(EnumerationMetrics.LOWEST_WEIGHT) + " at " + metrics.getValue(EnumerationMetrics.WHEN_BEST_FOUND));
 	}
-
-}
\ No newline at end of file
+}
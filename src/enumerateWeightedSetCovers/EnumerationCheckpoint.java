@@ -0,0 +1,353 @@
+package enumerateWeightedSetCovers;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+  * The state of an enumeration between two results, from which the enumeration can be resumed (see
+  * EnumerateSetCovers.resume).
+  *
+  * A checkpoint holds the entries of the queue (in heap order), the entry whose expansion was postponed, the
+  * fingerprints of the results returned so far, the counters of the enumeration and its metrics. Queue entries
+  * are immutable, so taking a checkpoint only copies references to them, and the checkpoint can then be written
+  * by another thread while the enumeration goes on. The entries that a SpillingQueue keeps on disk are taken as
+  * the bounds of its runs, and are copied from the runs while the checkpoint is written.
+  *
+  * The checkpoint is written as a gzipped stream of a DataOutputStream. The second and third parts of the queue
+  * entries share their bases and arrays of flipped indices (see SharedBitSet), so each of these is written once,
+  * and the entries refer to it by number. The entries that were on disk are written after the entry whose expansion
+  * was postponed, and their shared parts are numbered after all others. This keeps the file small, and keeps the sharing when it is read. The
+  * greedy cache is not written, as it only saves work. A checkpoint is first written to a temporary file, which
+  * then replaces the previous checkpoint, so that a crash while writing never loses the previous checkpoint.
+  */
+class EnumerationCheckpoint {
+
+	/**
+	  * The first int of a checkpoint file ("ESCK")
+	  */
+	private static final int MAGIC = 0x4553434B;
+
+	/**
+	  * The version of the format of checkpoint files
+	  */
+	private static final int VERSION = 2;
+
+	/**
+	  * The size of the buffers used for writing and reading, in bytes
+	  */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	  * A checksum of the problem given to the enumeration (before it was reduced)
+	  */
+	long problemChecksum;
+
+	/**
+	  * Whether the problem was reduced, and whether the reduction removed dominated sets
+	  */
+	boolean reduce;
+	boolean removeDominated;
+
+	/**
+	  * The parameters of the enumeration
+	  */
+	int maxResults;
+	boolean nonRedundant;
+
+	/**
+	  * The number of results returned so far, whether no result was returned yet, and the lowest weight of a result
+	  * in the current logging interval
+	  */
+	int numResults;
+	boolean first;
+	int bestScoreInInterval;
+
+	/**
+	  * Whether no queue entries were evicted due to a memory limit so far
+	  */
+	boolean exact;
+
+	/**
+	  * The time since the enumeration started, in nanoseconds
+	  */
+	long elapsedTime;
+
+	/**
+	  * The capacity of the queue, and its entries in memory in heap order (followed by the entries that were on
+	  * disk once the checkpoint is read)
+	  */
+	int queueCapacity;
+	QueueEntry[] entries;
+
+	/**
+	  * The runs of entries that were on disk when the checkpoint was taken (or null once it is read)
+	  */
+	SpillingQueue.SpilledRun[] spilledRuns;
+
+	/**
+	  * The entry of the last result, whose expansion was postponed (or null)
+	  */
+	QueueEntry toExpand;
+
+	/**
+	  * The fingerprints of the non-redundant results returned so far (or null if the results may be redundant)
+	  */
+	FingerprintSet printedAlready;
+
+	/**
+	  * The metrics of the enumeration, as written by EnumerationMetrics.write
+	  */
+	byte[] metrics;
+
+	/**
+	  * Writes the checkpoint to a file, replacing the file only once the checkpoint is completely written
+	  * @param fileName the name of the file
+	  */
+	public void write(String fileName) throws IOException {
+
+		File target = new File(fileName);
+		File temp = new File(fileName + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temp)) {
+
+			GZIPOutputStream zip = new GZIPOutputStream(file, BUFFER_SIZE);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(zip, BUFFER_SIZE));
+			write(out);
+			out.flush();
+			zip.finish();
+			file.getFD().sync();
+		}
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	  * Reads a checkpoint written by write
+	  * @param fileName the name of the file
+	  * @return the checkpoint
+	  */
+	public static EnumerationCheckpoint read(String fileName) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fileName), BUFFER_SIZE), BUFFER_SIZE))) {
+
+			if (in.readInt() != MAGIC) throw new IOException(fileName + " is not a checkpoint of an enumeration");
+			if (in.readInt() != VERSION) throw new IOException(fileName + " has an unsupported checkpoint version");
+			EnumerationCheckpoint checkpoint = new EnumerationCheckpoint();
+			checkpoint.read(in);
+			return checkpoint;
+		}
+		catch (EOFException e) {
+			throw new IOException(fileName + " is truncated", e);
+		}
+	}
+
+	/**
+	  * @param problem a problem
+	  * @return a checksum of the sizes, weights and sets of the problem
+	  */
+	static long checksum(SetCoverProblem problem) {
+
+		long h = FingerprintSet.mix(problem.getUniverseSize() * 0x9E3779B97F4A7C15L + problem.getNumberOfSets());
+		for (int i = 0 ; i < problem.getNumberOfSets() ; i++) {
+			h = FingerprintSet.mix(h ^ problem.getWeight(i)) + i;
+		}
+		int[] setOffsets = problem.getSetOffsets();
+		int[] setElements = problem.getSetElements();
+		for (int i = 0 ; i < setOffsets.length ; i++) {
+			h = FingerprintSet.mix(h ^ setOffsets[i]) + i;
+		}
+		for (int i = 0 ; i < setElements.length ; i++) {
+			h = FingerprintSet.mix(h ^ setElements[i]) + i;
+		}
+		return h;
+	}
+
+	private void write(DataOutputStream out) throws IOException {
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(problemChecksum);
+		out.writeBoolean(reduce);
+		out.writeBoolean(removeDominated);
+		out.writeInt(maxResults);
+		out.writeBoolean(nonRedundant);
+		out.writeInt(numResults);
+		out.writeBoolean(first);
+		out.writeInt(bestScoreInInterval);
+		out.writeBoolean(exact);
+		out.writeLong(elapsedTime);
+
+		// the shared parts of the entries, by identity, numbered in the order in which they are written
+		IdentityHashMap<Object, Integer> shared = new IdentityHashMap<Object, Integer>();
+		out.writeInt(queueCapacity);
+		out.writeInt(entries.length);
+		for (QueueEntry entry : entries) {
+			writeEntry(entry, shared, out);
+		}
+		out.writeBoolean(toExpand != null);
+		if (toExpand != null) writeEntry(toExpand, shared, out);
+
+		int numSpilled = 0;
+		for (SpillingQueue.SpilledRun run : spilledRuns) {
+			numSpilled += run.size();
+		}
+		int numShared = shared.size();
+		out.writeInt(numSpilled);
+		for (SpillingQueue.SpilledRun run : spilledRuns) {
+			numShared += run.write(numShared, out);
+		}
+
+		out.writeBoolean(printedAlready != null);
+		if (printedAlready != null) printedAlready.write(out);
+		out.writeInt(metrics.length);
+		out.write(metrics);
+	}
+
+	private void read(DataInputStream in) throws IOException {
+
+		problemChecksum = in.readLong();
+		reduce = in.readBoolean();
+		removeDominated = in.readBoolean();
+		maxResults = in.readInt();
+		nonRedundant = in.readBoolean();
+		numResults = in.readInt();
+		first = in.readBoolean();
+		bestScoreInInterval = in.readInt();
+		exact = in.readBoolean();
+		elapsedTime = in.readLong();
+
+		List<Object> shared = new ArrayList<Object>();
+		queueCapacity = in.readInt();
+		entries = new QueueEntry[in.readInt()];
+		for (int i = 0 ; i < entries.length ; i++) {
+			entries[i] = readEntry(shared, in);
+		}
+		toExpand = in.readBoolean() ? readEntry(shared, in) : null;
+
+		int numInMemory = entries.length;
+		entries = Arrays.copyOf(entries, numInMemory + in.readInt());
+		for (int i = numInMemory ; i < entries.length ; i++) {
+			entries[i] = readEntry(shared, in);
+		}
+
+		printedAlready = in.readBoolean() ? FingerprintSet.read(in) : null;
+		metrics = new byte[in.readInt()];
+		in.readFully(metrics);
+	}
+
+	/**
+	  * Writes a queue entry. Its shared parts are written only if they are not among those already written, which 
+	  * are numbered (by identity) in the order in which they were written
+	  */
+	static void writeEntry(QueueEntry entry, IdentityHashMap<Object, Integer> shared, DataOutputStream out) throws IOException {
+
+		out.writeInt(entry.weight);
+		out.writeBoolean(entry.fromQ1);
+		writeInts(entry.sets, out);
+		writeSharedBitSet(entry.second, shared, out);
+		writeSharedBitSet(entry.third, shared, out);
+	}
+
+	/**
+	  * Reads a queue entry written by writeEntry, given the shared parts that were read so far (by number)
+	  */
+	static QueueEntry readEntry(List<Object> shared, DataInputStream in) throws IOException {
+
+		int weight = in.readInt();
+		boolean fromQ1 = in.readBoolean();
+		int[] sets = readInts(in);
+		SharedBitSet second = readSharedBitSet(shared, in);
+		SharedBitSet third = readSharedBitSet(shared, in);
+		return new QueueEntry(weight, sets, second, third, fromQ1);
+	}
+
+	// a base or an array of flips is written as its number, followed by its contents if it was not written before
+	private static void writeSharedBitSet(SharedBitSet set, IdentityHashMap<Object, Integer> shared, DataOutputStream out) throws IOException {
+
+		BitSet base = set.getBase();
+		if (!writeReference(base, shared, out)) {
+
+			long[] words = base.toLongArray();
+			out.writeInt(words.length);
+			for (long word : words) {
+				out.writeLong(word);
+			}
+		}
+		if (!writeReference(set.getFlips(), shared, out)) writeInts(set.getFlips(), out);
+		out.writeInt(set.getNumFlips());
+	}
+
+	private static SharedBitSet readSharedBitSet(List<Object> shared, DataInputStream in) throws IOException {
+
+		// the first set that reads a shared part is charged for it
+		long bytes = 0;
+		int baseId = readReference(shared, in);
+		if (baseId == shared.size()) {
+
+			long[] words = new long[in.readInt()];
+			for (int i = 0 ; i < words.length ; i++) {
+				words[i] = in.readLong();
+			}
+			shared.add(BitSet.valueOf(words));
+			bytes += SharedBitSet.estimatedBytes((BitSet)shared.get(baseId));
+		}
+		BitSet base = (BitSet)shared.get(baseId);
+
+		int flipsId = readReference(shared, in);
+		if (flipsId == shared.size()) {
+
+			shared.add(readInts(in));
+			bytes += SharedBitSet.estimatedBytes((int[])shared.get(flipsId));
+		}
+		int[] flips = (int[])shared.get(flipsId);
+
+		int numFlips = in.readInt();
+		if (numFlips < 0 || numFlips > flips.length) throw new IOException("Corrupt queue entry");
+		return new SharedBitSet(base, flips, numFlips, bytes);
+	}
+
+	// writes the number of a shared object, numbering it if it is new
+	// returns true if the object was written before, and false if its contents should follow
+	private static boolean writeReference(Object object, IdentityHashMap<Object, Integer> shared, DataOutputStream out) throws IOException {
+
+		Integer id = shared.get(object);
+		if (id != null) {
+			out.writeInt(id);
+			return true;
+		}
+		out.writeInt(shared.size());
+		shared.put(object, shared.size());
+		return false;
+	}
+
+	// reads the number of a shared object, which is either a number that was read before or the next number
+	private static int readReference(List<Object> shared, DataInputStream in) throws IOException {
+
+		int id = in.readInt();
+		if (id < 0 || id > shared.size()) throw new IOException("Corrupt queue entry");
+		return id;
+	}
+
+	private static void writeInts(int[] ints, DataOutputStream out) throws IOException {
+
+		out.writeInt(ints.length);
+		for (int i : ints) {
+			out.writeInt(i);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+
+		int[] ints = new int[in.readInt()];
+		for (int i = 0 ; i < ints.length ; i++) {
+			ints[i] = in.readInt();
+		}
+		return ints;
+	}
+}
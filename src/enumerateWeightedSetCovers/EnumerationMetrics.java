@@ -0,0 +1,424 @@
+package enumerateWeightedSetCovers;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+  * The metrics of a single enumeration run. An object of this class is given to EnumerateSetCovers and
+  * GreedyMinSetCover, so that concurrent runs in the same JVM do not share any statistics.
+  *
+  * There are three kinds of metrics, each identified by a name:
+  *    - counters, which are only increased, and may be updated concurrently without locking (see LongAdder)
+  *    - values, such as the weight of the first solution, which are set by the enumeration itself
+  *    - histograms, which record the distribution of a measure, such as the latency of the greedy algorithm
+  * In addition, the metrics hold the time and lowest weight of every logging interval of the enumeration.
+  * All metrics can be read while the run is in progress, through snapshot()
+  */
+public class EnumerationMetrics {
+
+	/**
+	  * The number of times the greedy algorithm ran
+	  */
+	public static final String GREEDY_CALLS = "ranGreedyMinSetCover";
+
+	/**
+	  * The number of branches that were dropped without running the greedy algorithm, as their lower bound
+	  * showed that they would not enter the queue
+	  */
+	public static final String PRUNED_BRANCHES = "prunedBranches";
+
+	/**
+	  * The number of subproblems whose greedy solution was found in the cache
+	  */
+	public static final String GREEDY_CACHE_HITS = "greedyCacheHits";
+
+	/**
+	  * The number of subproblems whose greedy solution was not found in the cache
+	  */
+	public static final String GREEDY_CACHE_MISSES = "greedyCacheMisses";
+
+	/**
+	  * The latency of the greedy algorithm, in nanoseconds
+	  */
+	public static final String GREEDY_LATENCY = "greedyLatencyNanos";
+
+	/**
+	  * The size of the queue whenever an entry is popped
+	  */
+	public static final String QUEUE_SIZE = "queueSize";
+
+	/**
+	  * The number of branches of every expanded Q1 entry
+	  */
+	public static final String BRANCH_FAN_OUT = "branchFanOut";
+
+	/**
+	  * The number of non-redundant results that were dropped since they were already returned
+	  */
+	public static final String DUPLICATES = "duplicateResults";
+
+	/**
+	  * The number of queue entries that were evicted to keep the queue within its memory limit
+	  */
+	public static final String EVICTED_ENTRIES = "evictedEntries";
+
+	/**
+	  * The time for which the enumeration was paused to take a checkpoint, in nanoseconds (the checkpoint is then
+	  * written in the background)
+	  */
+	public static final String CHECKPOINT_PAUSE = "checkpointPauseNanos";
+
+	/**
+	  * The weight of the first result
+	  */
+	public static final String FIRST_WEIGHT = "firstWeight";
+
+	/**
+	  * The lowest weight of a result
+	  */
+	public static final String LOWEST_WEIGHT = "lowestWeight";
+
+	/**
+	  * The number of results returned until the lowest weight was found
+	  */
+	public static final String WHEN_BEST_FOUND = "whenBestFound";
+
+	/**
+	  * The counters, by name
+	  */
+	private ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+
+	/**
+	  * The values, by name
+	  */
+	private ConcurrentHashMap<String, Long> values = new ConcurrentHashMap<String, Long>();
+
+	/**
+	  * The histograms, by name
+	  */
+	private ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	/**
+	  * The time of the end of every interval, in milliseconds from the beginning of the enumeration
+	  */
+	private List<Long> intervalTimes = new ArrayList<Long>();
+
+	/**
+	  * The lowest weight of a result within every interval
+	  */
+	private List<Integer> intervalWeights = new ArrayList<Integer>();
+
+	/**
+	  * Returns a counter, creating it if needed. Callers on a hot path should keep the returned counter
+	  * rather than look it up every time
+	  * @param name the name of the counter
+	  * @return the counter
+	  */
+	public LongAdder counter(String name) {
+
+		LongAdder counter = counters.get(name);
+		if (counter == null) {
+			counters.putIfAbsent(name, new LongAdder());
+			counter = counters.get(name);
+		}
+		return counter;
+	}
+
+	/**
+	  * Returns a histogram, creating it if needed. Callers on a hot path should keep the returned histogram
+	  * rather than look it up every time
+	  * @param name the name of the histogram
+	  * @return the histogram
+	  */
+	public Histogram histogram(String name) {
+
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histograms.putIfAbsent(name, new Histogram());
+			histogram = histograms.get(name);
+		}
+		return histogram;
+	}
+
+	/**
+	  * @param name the name of a counter
+	  * @return the current value of the counter (0 if it was never increased)
+	  */
+	public long getCount(String name) {
+
+		LongAdder counter = counters.get(name);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	  * change given value
+	  * @param name value name
+	  * @param value the new value
+	  */
+	public void setValue(String name, long value) {
+		values.put(name, value);
+	}
+
+	/**
+	  * update value to new value, if it is lower
+	  * @param name value name
+	  * @param value the new value
+	  * @return true if an update was made
+	  */
+	public boolean minValue(String name, long value) {
+
+		Long pastVal = values.get(name);
+		if (pastVal != null && pastVal <= value) return false;
+		values.put(name, value);
+		return true;
+	}
+
+	/**
+	  * @param name value name
+	  * @return the value, or null if it was never set
+	  */
+	public Long getValue(String name) {
+		return values.get(name);
+	}
+
+	/**
+	  * Add the amount of time that an interval ran, as well as the weight of the best solution in the interval
+	  * @param time the amount of time from the begining of the execution until the end of the interval
+	  * @param weight the lowest weight solution found within the interval
+	  */
+	public synchronized void addInterval(long time, int weight) {
+
+		intervalTimes.add(time);
+		intervalWeights.add(weight);
+	}
+
+	public synchronized long getIntervalTime(int i) {
+		return intervalTimes.get(i);
+	}
+
+	public synchronized int getIntervalWeight(int i) {
+		return intervalWeights.get(i);
+	}
+
+	public synchronized int numberOfIntervals() {
+		return intervalTimes.size();
+	}
+
+	/**
+	  * Takes a snapshot of all counters, values and histograms. A histogram h is exported as h.count, h.mean,
+	  * h.p50, h.p90, h.p99 and h.max (where percentiles are rounded up to the end of their bucket)
+	  * @return the metrics, sorted by name
+	  */
+	public Map<String, Long> snapshot() {
+
+		TreeMap<String, Long> snapshot = new TreeMap<String, Long>(values);
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			snapshot.put(counter.getKey(), counter.getValue().sum());
+		}
+		for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+			histogram.getValue().export(histogram.getKey(), snapshot);
+		}
+		return snapshot;
+	}
+
+	/**
+	  * Writes all counters, values, histograms and intervals, so that they can be restored by read. Should not be
+	  * called while the metrics are updated
+	  * @param out the output
+	  */
+	public synchronized void write(DataOutput out) throws IOException {
+
+		out.writeInt(counters.size());
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			out.writeUTF(counter.getKey());
+			out.writeLong(counter.getValue().sum());
+		}
+		out.writeInt(values.size());
+		for (Map.Entry<String, Long> value : values.entrySet()) {
+			out.writeUTF(value.getKey());
+			out.writeLong(value.getValue());
+		}
+		out.writeInt(histograms.size());
+		for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+			out.writeUTF(histogram.getKey());
+			histogram.getValue().write(out);
+		}
+		out.writeInt(intervalTimes.size());
+		for (int i = 0 ; i < intervalTimes.size() ; i++) {
+			out.writeLong(intervalTimes.get(i));
+			out.writeInt(intervalWeights.get(i));
+		}
+	}
+
+	/**
+	  * Reads metrics written by write, and adds them to these metrics: counters and histograms are added to, values
+	  * are set and intervals are appended. Reading into new metrics thus restores the metrics that were written
+	  * @param in the input
+	  */
+	public void read(DataInput in) throws IOException {
+
+		for (int n = in.readInt() ; n > 0 ; n--) {
+			counter(in.readUTF()).add(in.readLong());
+		}
+		for (int n = in.readInt() ; n > 0 ; n--) {
+			setValue(in.readUTF(), in.readLong());
+		}
+		for (int n = in.readInt() ; n > 0 ; n--) {
+			histogram(in.readUTF()).read(in);
+		}
+		for (int n = in.readInt() ; n > 0 ; n--) {
+			addInterval(in.readLong(), in.readInt());
+		}
+	}
+
+	/**
+	  * @return the snapshot of the metrics, one "name=value" pair per line
+	  */
+	public String toString() {
+
+		StringBuilder out = new StringBuilder();
+		for (Map.Entry<String, Long> metric : snapshot().entrySet()) {
+			out.append(metric.getKey()).append('=').append(metric.getValue()).append(System.lineSeparator());
+		}
+		return out.toString();
+	}
+
+
+	/**
+	  * A histogram of non-negative values, with a bucket per power of 2. Recording a value takes a few
+	  * atomic operations and no locks, so it may be done concurrently on a hot path
+	  */
+	public static class Histogram {
+
+		/**
+		  * Bucket i counts the values v with 2^(i-1) <= v < 2^i (bucket 0 counts zeros)
+		  */
+		private AtomicLongArray buckets = new AtomicLongArray(64);
+
+		/**
+		  * The number of recorded values
+		  */
+		private LongAdder count = new LongAdder();
+
+		/**
+		  * The sum of the recorded values
+		  */
+		private LongAdder sum = new LongAdder();
+
+		/**
+		  * The maximal recorded value
+		  */
+		private AtomicLong max = new AtomicLong();
+
+		/**
+		  * Records a value
+		  * @param value a non-negative value (negative values are recorded as 0)
+		  */
+		public void record(long value) {
+
+			if (value < 0) value = 0;
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			count.increment();
+			sum.add(value);
+
+			long pastMax = max.get();
+			while (value > pastMax && !max.compareAndSet(pastMax, value)) {
+				pastMax = max.get();
+			}
+		}
+
+		/**
+		  * @return the number of recorded values
+		  */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		  * @return the maximal recorded value
+		  */
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		  * @return the average of the recorded values (0 if there are none)
+		  */
+		public long getMean() {
+
+			long n = count.sum();
+			return n == 0 ? 0 : sum.sum() / n;
+		}
+
+		/**
+		  * @param fraction a fraction between 0 and 1
+		  * @return an upper bound on the given percentile of the recorded values (the end of its bucket, or the maximum)
+		  */
+		public long getPercentile(double fraction) {
+
+			long total = 0;
+			for (int i = 0 ; i < buckets.length() ; i++) total += buckets.get(i);
+
+			long rank = (long)Math.ceil(fraction * total);
+			long seen = 0;
+			for (int i = 0 ; i < buckets.length() ; i++) {
+
+				seen += buckets.get(i);
+				if (seen > 0 && seen >= rank) return Math.min(i == 63 ? Long.MAX_VALUE : (1L << i) - 1, getMax());
+			}
+			return getMax();
+		}
+
+		/**
+		  * Writes the buckets and totals of the histogram
+		  */
+		private void write(DataOutput out) throws IOException {
+
+			for (int i = 0 ; i < buckets.length() ; i++) {
+				out.writeLong(buckets.get(i));
+			}
+			out.writeLong(count.sum());
+			out.writeLong(sum.sum());
+			out.writeLong(max.get());
+		}
+
+		/**
+		  * Adds the values of a histogram written by write to this histogram
+		  */
+		private void read(DataInput in) throws IOException {
+
+			for (int i = 0 ; i < buckets.length() ; i++) {
+				buckets.addAndGet(i, in.readLong());
+			}
+			count.add(in.readLong());
+			sum.add(in.readLong());
+			long value = in.readLong();
+			long pastMax = max.get();
+			while (value > pastMax && !max.compareAndSet(pastMax, value)) {
+				pastMax = max.get();
+			}
+		}
+
+		/**
+		  * Adds the summary of the histogram to a snapshot
+		  */
+		private void export(String name, Map<String, Long> snapshot) {
+
+			snapshot.put(name + ".count", getCount());
+			snapshot.put(name + ".mean", getMean());
+			snapshot.put(name + ".p50", getPercentile(0.5));
+			snapshot.put(name + ".p90", getPercentile(0.9));
+			snapshot.put(name + ".p99", getPercentile(0.99));
+			snapshot.put(name + ".max", getMax());
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package enumerateWeightedSetCovers;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+  * A set of BitSets, used for checking whether a result was already returned.
+  *
+  * Rather than a copy of every BitSet, the set stores a 128-bit fingerprint of it, in an open-addressed hash
+  * table of longs. Two different BitSets have the same fingerprint with a negligible probability (about n^2/2^128
+  * for n BitSets), so the set is exact for all practical purposes. A fingerprint takes a slot of 16 bytes, and the
+  * table is kept at most half full, so the set uses 32 to 64 bytes per member. When created
+  * with exact verification, the set also keeps the indices of every member, and compares them whenever
+  * fingerprints are equal, so that a collision of fingerprints is never mistaken for a duplicate.
+  */
+class FingerprintSet {
+
+	/**
+	  * Odd constants used for mixing the indices into the two halves of the fingerprint
+	  */
+	private static final long MIX1 = 0x9E3779B97F4A7C15L;
+	private static final long MIX2 = 0xC2B2AE3D27D4EB4FL;
+
+	/**
+	  * The fingerprints. Slot i holds the fingerprint (table[2*i], table[2*i+1]), where (0, 0) marks an empty slot
+	  */
+	private long[] table;
+
+	/**
+	  * The indices of the members, by slot, or null if the set does not verify fingerprints
+	  */
+	private int[][] members;
+
+	/**
+	  * The number of slots in the table minus one (the number of slots is a power of 2)
+	  */
+	private int mask;
+
+	/**
+	  * The number of members
+	  */
+	private int size = 0;
+
+	/**
+	  * Creates an empty set
+	  * @param exact true if the indices of the members should be kept, and compared when fingerprints are equal
+	  */
+	public FingerprintSet(boolean exact) {
+
+		table = new long[2 * 64];
+		mask = 63;
+		if (exact) members = new int[64][];
+	}
+
+	/**
+	  * Creates an empty set with the given number of slots
+	  */
+	private FingerprintSet(boolean exact, int slots) {
+
+		table = new long[2 * slots];
+		mask = slots - 1;
+		if (exact) members = new int[slots][];
+	}
+
+	/**
+	  * @return the number of members
+	  */
+	public int size() {
+		return size;
+	}
+
+	/**
+	  * @return a copy of the set, which is not affected by later changes to this set. Takes time linear in the
+	  * number of slots, but copies neither the fingerprints one by one nor the (never changed) indices of the members
+	  */
+	public FingerprintSet copy() {
+
+		FingerprintSet copy = new FingerprintSet(members != null, 0);
+		copy.table = table.clone();
+		copy.members = members == null ? null : members.clone();
+		copy.mask = mask;
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	  * Writes the members of the set (see read)
+	  * @param out the output
+	  */
+	public void write(DataOutput out) throws IOException {
+
+		out.writeBoolean(members != null);
+		out.writeInt(mask + 1);
+		out.writeInt(size);
+		for (int slot = 0 ; slot <= mask ; slot++) {
+
+			if (table[2 * slot] == 0 && table[2 * slot + 1] == 0) continue;
+			out.writeLong(table[2 * slot]);
+			out.writeLong(table[2 * slot + 1]);
+			if (members == null) continue;
+			out.writeInt(members[slot].length);
+			for (int i : members[slot]) {
+				out.writeInt(i);
+			}
+		}
+	}
+
+	/**
+	  * Reads a set written by write
+	  * @param in the input
+	  * @return a set with the same members
+	  */
+	public static FingerprintSet read(DataInput in) throws IOException {
+
+		boolean exact = in.readBoolean();
+		int slots = in.readInt();
+		int size = in.readInt();
+		if (Integer.bitCount(slots) != 1 || size < 0 || 2 * (long)size > slots) throw new IOException("Corrupt set of fingerprints");
+
+		FingerprintSet set = new FingerprintSet(exact, slots);
+		for (int n = 0 ; n < size ; n++) {
+
+			long h1 = in.readLong(), h2 = in.readLong();
+			int[] indices = null;
+			if (exact) {
+				indices = new int[in.readInt()];
+				for (int i = 0 ; i < indices.length ; i++) {
+					indices[i] = in.readInt();
+				}
+			}
+			set.insert(h1, h2, indices);
+		}
+		set.size = size;
+		return set;
+	}
+
+	/**
+	  * Adds a BitSet to the set, if it is not already a member. The BitSet is not kept by the set
+	  * @param bits a BitSet
+	  * @return true if the BitSet was added, false if it was already a member
+	  */
+	public boolean add(BitSet bits) {
+
+		// compute the fingerprint, mixing every index into both halves
+		long h1 = 0, h2 = 0;
+		int n = 0;
+		for (int i = bits.nextSetBit(0) ; i != -1 ; i = bits.nextSetBit(i+1)) {
+
+			h1 = Long.rotateLeft(h1 ^ mix((i + 1) * MIX1), 27) * 5 + 0x52DCE729;
+			h2 = Long.rotateLeft(h2 ^ mix((i + 1) * MIX2), 31) * 5 + 0x38495AB5;
+			n++;
+		}
+		h1 = mix(h1 ^ n);
+		h2 = mix(h2 ^ h1);
+		if (h1 == 0 && h2 == 0) h2 = 1;
+
+		int[] indices = members == null ? null : bits.stream().toArray();
+		for (int slot = (int)h1 & mask ; ; slot = (slot + 1) & mask) {
+
+			long f1 = table[2 * slot], f2 = table[2 * slot + 1];
+			if (f1 == 0 && f2 == 0) break;
+			if (f1 == h1 && f2 == h2 && (members == null || Arrays.equals(members[slot], indices))) return false;
+		}
+
+		if (2 * (size + 1) > mask + 1) grow();
+		insert(h1, h2, indices);
+		size++;
+		return true;
+	}
+
+	/**
+	  * Puts a fingerprint in the first empty slot of its probe sequence
+	  */
+	private void insert(long h1, long h2, int[] indices) {
+
+		int slot = (int)h1 & mask;
+		while (table[2 * slot] != 0 || table[2 * slot + 1] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[2 * slot] = h1;
+		table[2 * slot + 1] = h2;
+		if (members != null) members[slot] = indices;
+	}
+
+	/**
+	  * Doubles the number of slots in the table
+	  */
+	private void grow() {
+
+		long[] oldTable = table;
+		int[][] oldMembers = members;
+		int oldSlots = mask + 1;
+
+		table = new long[4 * oldSlots];
+		mask = 2 * oldSlots - 1;
+		if (oldMembers != null) members = new int[2 * oldSlots][];
+
+		for (int slot = 0 ; slot < oldSlots ; slot++) {
+
+			if (oldTable[2 * slot] != 0 || oldTable[2 * slot + 1] != 0)
+				insert(oldTable[2 * slot], oldTable[2 * slot + 1], oldMembers == null ? null : oldMembers[slot]);
+		}
+	}
+
+	/**
+	  * The finalizer of MurmurHash3, which spreads every bit of the input over the whole output
+	  */
+	static long mix(long h) {
+
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,235 @@
+package enumerateWeightedSetCovers;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+  * A set of indices 0, ..., size-1, kept as a fixed array of words.
+  *
+  * Unlike a BitSet, the array is allocated once for the size of the universe or the number of sets, and never
+  * grows, so no operation checks the capacity or recomputes the number of words in use, and copying a set is a
+  * single array copy. Operations that would take a temporary BitSet (such as iterating over the indices in one set
+  * but not in another, or counting them) are done word by word in a single loop. These loops are simple enough for
+  * the JIT compiler to unroll and vectorize them. Indices are not checked against the size.
+  */
+final class FixedBitSet {
+
+	/**
+	  * The number of indices in the universe of the set
+	  */
+	private final int size;
+
+	/**
+	  * The bits of the set. Bits at or beyond size are always 0
+	  */
+	private final long[] words;
+
+	/**
+	  * Creates an empty set
+	  * @param size the number of indices in the universe of the set
+	  */
+	public FixedBitSet(int size) {
+
+		this.size = size;
+		words = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	  * Creates a copy of a set
+	  * @param other the set to copy
+	  */
+	public FixedBitSet(FixedBitSet other) {
+
+		size = other.size;
+		words = other.words.clone();
+	}
+
+	/**
+	  * @param bits a set of indices
+	  * @param size the number of indices in the universe of the new set. Indices in bits at or beyond it are ignored
+	  * @return a new set with the indices in bits
+	  */
+	public static FixedBitSet valueOf(BitSet bits, int size) {
+
+		FixedBitSet set = new FixedBitSet(size);
+		long[] bitWords = bits.toLongArray();
+		System.arraycopy(bitWords, 0, set.words, 0, Math.min(bitWords.length, set.words.length));
+		set.clearTail();
+		return set;
+	}
+
+	/**
+	  * @return the number of indices in the universe of the set
+	  */
+	public int size() {
+		return size;
+	}
+
+	/**
+	  * @return the words of the set, where bit i%64 of word i/64 is set if index i is in the set. The array belongs
+	  * to the set and must not be changed
+	  */
+	long[] getWords() {
+		return words;
+	}
+
+	public boolean get(int i) {
+		return (words[i >>> 6] & (1L << i)) != 0;
+	}
+
+	public void set(int i) {
+		words[i >>> 6] |= 1L << i;
+	}
+
+	public void clear(int i) {
+		words[i >>> 6] &= ~(1L << i);
+	}
+
+	/**
+	  * Removes all the indices from the set
+	  */
+	public void clear() {
+		Arrays.fill(words, 0L);
+	}
+
+	public boolean isEmpty() {
+
+		for (int i = 0 ; i < words.length ; i++) {
+			if (words[i] != 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	  * @return the number of indices in the set
+	  */
+	public int cardinality() {
+
+		int count = 0;
+		for (int i = 0 ; i < words.length ; i++) {
+			count += Long.bitCount(words[i]);
+		}
+		return count;
+	}
+
+	/**
+	  * Makes this set equal to another set of the same size, without allocating memory
+	  * @param other a set of the same size
+	  */
+	public void copyFrom(FixedBitSet other) {
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+
+	/**
+	  * Adds the indices of another set of the same size to this set
+	  * @param other a set of the same size
+	  */
+	public void or(FixedBitSet other) {
+
+		long[] otherWords = other.words;
+		for (int i = 0 ; i < words.length ; i++) {
+			words[i] |= otherWords[i];
+		}
+	}
+
+	/**
+	  * @param other a set of the same size
+	  * @return the number of indices in this set that are not in the other set (without changing either set)
+	  */
+	public int andNotCardinality(FixedBitSet other) {
+
+		long[] otherWords = other.words;
+		int count = 0;
+		for (int i = 0 ; i < words.length ; i++) {
+			count += Long.bitCount(words[i] & ~otherWords[i]);
+		}
+		return count;
+	}
+
+	/**
+	  * Counts the given indices that are not in the set, without a branch per index (so that the count takes the 
+	  * same path whether few or most of the indices are in the set)
+	  * @param indices an array holding distinct indices
+	  * @param from the position of the first index to count in the array
+	  * @param to the position after the last index to count in the array
+	  * @return the number of indices indices[from], ..., indices[to-1] that are not in the set
+	  */
+	public int countClear(int[] indices, int from, int to) {
+
+		int count = to - from;
+		for (int j = from ; j < to ; j++) {
+			count -= (int)(words[indices[j] >>> 6] >>> indices[j]) & 1;
+		}
+		return count;
+	}
+
+	/**
+	  * @param from an index to start from
+	  * @return the first index in the set that is at least from, or -1 if there is none
+	  */
+	public int nextSetBit(int from) {
+
+		int w = from >>> 6;
+		if (w >= words.length) return -1;
+		long word = words[w] & (-1L << from);
+		while (word == 0) {
+			if (++w == words.length) return -1;
+			word = words[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	  * Iterates over the indices in this set and in another set, without computing their intersection
+	  * @param other a set of the same size
+	  * @param from an index to start from
+	  * @return the first index that is at least from, and is in both sets, or -1 if there is none
+	  */
+	public int nextSetBitAnd(FixedBitSet other, int from) {
+
+		long[] otherWords = other.words;
+		int w = from >>> 6;
+		if (w >= words.length) return -1;
+		long word = words[w] & otherWords[w] & (-1L << from);
+		while (word == 0) {
+			if (++w == words.length) return -1;
+			word = words[w] & otherWords[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	  * Iterates over the indices in this set that are not in another set, without computing their difference
+	  * @param other a set of the same size
+	  * @param from an index to start from
+	  * @return the first index that is at least from, and is in this set but not in the other set, or -1 if there is none
+	  */
+	public int nextSetBitAndNot(FixedBitSet other, int from) {
+
+		long[] otherWords = other.words;
+		int w = from >>> 6;
+		if (w >= words.length) return -1;
+		long word = words[w] & ~otherWords[w] & (-1L << from);
+		while (word == 0) {
+			if (++w == words.length) return -1;
+			word = words[w] & ~otherWords[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	  * @return a new BitSet with the indices of the set
+	  */
+	public BitSet toBitSet() {
+		return BitSet.valueOf(words);
+	}
+
+	public String toString() {
+		return QueueEntry.bitSetString(toBitSet());
+	}
+
+	// clears the bits at or beyond size in the last word
+	private void clearTail() {
+		if ((size & 63) != 0) words[words.length - 1] &= (1L << size) - 1;
+	}
+}
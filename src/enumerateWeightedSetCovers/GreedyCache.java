@@ -0,0 +1,172 @@
+package enumerateWeightedSetCovers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+  * A cache of the solutions found by the greedy algorithm for subproblems of a single problem, where a subproblem
+  * is given by the elements that are already covered and the sets that may be used.
+  *
+  * A subproblem is identified by a 128-bit fingerprint of its two sets, so the cache does not keep the sets
+  * themselves, and the solution of a subproblem is kept as the array of its sets. The cache holds solutions up to a
+  * given estimate of their memory, evicting the least recently used solutions first. It may be used by several
+  * threads at once.
+  */
+class GreedyCache {
+
+	/**
+	  * The estimated memory of an entry of the cache, in addition to the sets of its solution
+	  */
+	private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+	/**
+	  * Cached for subproblems that have no solution
+	  */
+	private static final int[] NO_SOLUTION = new int[0];
+
+	/**
+	  * The solutions, by the fingerprint of their subproblem, from the least to the most recently used
+	  */
+	private LinkedHashMap<Key, int[]> solutions = new LinkedHashMap<Key, int[]>(16, 0.75f, true);
+
+	/**
+	  * The maximal estimated memory of the cached solutions, in bytes
+	  */
+	private long maxBytes;
+
+	/**
+	  * The estimated memory of the cached solutions, in bytes
+	  */
+	private long bytes = 0;
+
+	/**
+	  * The number of lookups that found a solution (see EnumerationMetrics.GREEDY_CACHE_HITS)
+	  */
+	private LongAdder hits;
+
+	/**
+	  * The number of lookups that did not find a solution (see EnumerationMetrics.GREEDY_CACHE_MISSES)
+	  */
+	private LongAdder misses;
+
+	/**
+	  * Creates an empty cache
+	  * @param maxBytes the maximal estimated memory of the cached solutions, in bytes
+	  * @param metrics the metrics in which hits and misses are counted
+	  */
+	public GreedyCache(long maxBytes, EnumerationMetrics metrics) {
+
+		this.maxBytes = maxBytes;
+		hits = metrics.counter(EnumerationMetrics.GREEDY_CACHE_HITS);
+		misses = metrics.counter(EnumerationMetrics.GREEDY_CACHE_MISSES);
+	}
+
+	/**
+	  * Returns the solution of the greedy algorithm for a subproblem, running the algorithm only if the solution
+	  * is not in the cache. When the algorithm is run with a weight limit (see GreedyMinSetCover.approxSetCover) and
+	  * does not find a solution, the result is not cached, since it may only be due to the limit
+	  * @param greedy the greedy algorithm, used if the solution is not cached
+	  * @param problem the problem (which must be the same in all calls)
+	  * @param covered a FixedBitSet of size of the universe indicating which elements are assumed to already be covered
+	  * @param legalSets a FixedBitSet of size of the number of sets indicating which sets can be used in the solution
+	  * @param weightLimit only solutions lighter than this are of interest (Integer.MAX_VALUE if all solutions are)
+	  * @return the solution, or null if there is none (or if every solution weighs at least weightLimit)
+	  */
+	public Solution approxSetCover(GreedyMinSetCover greedy, SetCoverProblem problem, FixedBitSet covered, FixedBitSet legalSets, int weightLimit) {
+
+		Key key = new Key(covered, legalSets);
+		int[] sets;
+		synchronized (this) {
+			sets = solutions.get(key);
+		}
+
+		if (sets != null) {
+
+			hits.increment();
+			if (sets == NO_SOLUTION) return null;
+
+			Solution solution = new Solution();
+			for (int i : sets) {
+				solution.addSet(i, problem.getWeight(i));
+			}
+			return solution;
+		}
+
+		misses.increment();
+		Solution solution = greedy.approxSetCover(problem, covered, legalSets, weightLimit);
+		if (solution == null && weightLimit != Integer.MAX_VALUE) return null;
+
+		put(key, solution == null ? NO_SOLUTION : solution.getSolution().stream().toArray());
+		return solution;
+	}
+
+	/**
+	  * Adds a solution to the cache, evicting the least recently used solutions if needed
+	  */
+	private synchronized void put(Key key, int[] sets) {
+
+		int[] previous = solutions.put(key, sets);
+		if (previous != null) bytes -= sizeOf(previous);
+		bytes += sizeOf(sets);
+
+		Iterator<Map.Entry<Key, int[]>> eldest = solutions.entrySet().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+
+			bytes -= sizeOf(eldest.next().getValue());
+			eldest.remove();
+		}
+	}
+
+	/**
+	  * @return the estimated memory of an entry with the given solution, in bytes
+	  */
+	private static long sizeOf(int[] sets) {
+		return ENTRY_OVERHEAD_BYTES + 4L * sets.length;
+	}
+
+
+	/**
+	  * The fingerprint of a subproblem
+	  */
+	private static class Key {
+
+		private long h1, h2;
+
+		public Key(FixedBitSet covered, FixedBitSet legalSets) {
+
+			h1 = 0x243F6A8885A308D3L;
+			h2 = 0x13198A2E03707344L;
+			add(covered);
+			// separate the two sets, so that moving words from one to the other changes the fingerprint
+			h1 = FingerprintSet.mix(h1 ^ 0x1L);
+			h2 = FingerprintSet.mix(h2 ^ 0x2L);
+			add(legalSets);
+			h1 = FingerprintSet.mix(h1 ^ h2);
+			h2 = FingerprintSet.mix(h2 ^ h1);
+		}
+
+		private void add(FixedBitSet bits) {
+
+			long[] words = bits.getWords();
+			for (int i = 0 ; i < words.length ; i++) {
+
+				h1 = Long.rotateLeft(h1 ^ FingerprintSet.mix(words[i] + i), 27) * 5 + 0x52DCE729;
+				h2 = Long.rotateLeft(h2 ^ FingerprintSet.mix(words[i] * 0x9E3779B97F4A7C15L + i), 31) * 5 + 0x38495AB5;
+			}
+			h1 ^= words.length;
+		}
+
+		public boolean equals(Object o) {
+
+			if (!(o instanceof Key)) return false;
+			Key other = (Key)o;
+			return h1 == other.h1 && h2 == other.h2;
+		}
+
+		public int hashCode() {
+			return (int)h1;
+		}
+	}
+}
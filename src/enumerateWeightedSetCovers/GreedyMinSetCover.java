@@ -1,12 +1,17 @@
 package enumerateWeightedSetCovers;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
-  * This class is used to implement a greedy algorithm that finds a single solution to the weighted set cover problem
+  * This class is used to implement a greedy algorithm that finds a single solution to the weighted set cover problem.
+  * 
+  * An object of this class keeps scratch arrays that are reused by consecutive calls on the same problem, so it is 
+  * worth keeping a single object when solving many subproblems. An object should not be used by several threads at once
   */
 public class GreedyMinSetCover {
 		
@@ -26,9 +31,9 @@ public class GreedyMinSetCover {
 		private int[] currSetSize;
 		
 		/** 
-		  * This array indicates which universe elements have already been covered
+		  * The universe elements that have already been covered
 		  */
-		private boolean[] elemCovered;
+		private FixedBitSet elemCovered;
 		
 		/** 
 		  * The number of elements that have already been covered
@@ -36,10 +41,103 @@ public class GreedyMinSetCover {
 		private int numCovered;
 		
 		/** 
-		  * A copy of the set cover problem, used to store the original problem, as it 
-		  * will be changed over time (as elements are covered)
+		  * The problem being solved. Its sets are only read, never changed, so that the problem does not 
+		  * need to be copied on every call. The scratch arrays below are allocated for this problem, and are 
+		  * reused as long as the following calls are for the same problem
 		  */
-		private SetCoverProblem problemCopy;
+		private SetCoverProblem problem;
+		
+		/**
+		  * For every legal set, the ratio between its weight and the number of its uncovered elements, 
+		  * as it was when the set was last pushed into the heap
+		  */
+		private double[] ratio;
+		
+		/** 
+		  * For every legal set, the number of its uncovered elements when it was last pushed into the heap. 
+		  * If this differs from currSetSize, the heap entry of the set is stale
+		  */
+		private int[] heapSetSize;
+		
+		/**
+		  * A binary min-heap of set indices, ordered by ratio (ties are broken by the set index)
+		  */
+		private int[] heap;
+		
+		/**
+		  * The number of sets currently in the heap
+		  */
+		private int heapSize;
+		
+		/**
+		  * The sets of the problem in compressed sparse row form (shared with the problem, see SetCoverProblem.getSetOffsets)
+		  */
+		private int[] setOffsets;
+		
+		/**
+		  * The elements of the sets of the problem (shared with the problem, see SetCoverProblem.getSetElements)
+		  */
+		private int[] setElements;
+		
+		/**
+		  * The inverted index of the problem in compressed sparse row form (shared with the problem, see SetCoverProblem.getElementOffsets)
+		  */
+		private int[] elementOffsets;
+		
+		/**
+		  * The sets containing every element (shared with the problem, see SetCoverProblem.getElementSets)
+		  */
+		private int[] elementSets;
+		
+		/**
+		  * Returned by solve when the lower bound shows that there is no solution lighter than the weight limit
+		  */
+		private static final Solution PRUNED = new Solution();
+		
+		/**
+		  * The metrics of the run that uses this object (may be shared with other objects, possibly in other threads)
+		  */
+		private EnumerationMetrics metrics;
+		
+		/**
+		  * The number of calls to the algorithm (see EnumerationMetrics.GREEDY_CALLS)
+		  */
+		private LongAdder greedyCalls;
+		
+		/**
+		  * The latency of calls to the algorithm (see EnumerationMetrics.GREEDY_LATENCY)
+		  */
+		private EnumerationMetrics.Histogram greedyLatency;
+		
+		/**
+		  * The number of calls that were pruned by the lower bound (see EnumerationMetrics.PRUNED_BRANCHES)
+		  */
+		private LongAdder prunedCalls;
+		
+		/**
+		  * Creates an object whose calls are logged in metrics of its own
+		  */
+		public GreedyMinSetCover() {
+			this(new EnumerationMetrics());
+		}
+		
+		/**
+		  * @param metrics the metrics in which calls to the algorithm are logged
+		  */
+		public GreedyMinSetCover(EnumerationMetrics metrics) {
+			
+			this.metrics = metrics;
+			greedyCalls = metrics.counter(EnumerationMetrics.GREEDY_CALLS);
+			greedyLatency = metrics.histogram(EnumerationMetrics.GREEDY_LATENCY);
+			prunedCalls = metrics.counter(EnumerationMetrics.PRUNED_BRANCHES);
+		}
+		
+		/**
+		  * @return the metrics in which calls to the algorithm are logged
+		  */
+		public EnumerationMetrics getMetrics() {
+			return metrics;
+		}
 		
 		/**
 		  * @param problem the problem to be solved
@@ -58,83 +156,257 @@ public class GreedyMinSetCover {
 		}
 		
 		/**
-		  * This version of the algorithm is useful as a subprocedure in enumeration
+		  * This version of the algorithm is useful as a subprocedure in enumeration.
+		  * 
+		  * Rather than rescanning all sets in every iteration, the sets are kept in a lazy priority queue ordered 
+		  * by the ratio of their weight to the number of their uncovered elements. Covering an element only decreases 
+		  * the counts of the sets containing it (found using the inverted index of the problem), and a set whose count changed since 
+		  * it was pushed is re-inserted with its new ratio when it reaches the top of the queue. Since ratios 
+		  * can only grow, the set chosen in every iteration is the same as in a full rescan.
+		  * 
 		  * @param problem the problem to be solved
 		  * @param covered a BitSet indicating which elements of the universe are assumed to already be covered
 		  * @param legalSets a BitSet indicating which sets can be used in the solution 
 		  * @return a solution to the weighted set cover problem for the given input
 		  */
 		public Solution approxSetCover(SetCoverProblem problem, BitSet covered, BitSet legalSets) {
+			return approxSetCover(problem, covered, legalSets, Integer.MAX_VALUE);
+		}
 		
-			//log the fact that this function is run
-			StatisticsLogger.incStat("ranGreedyMinSetCover", 1);
+		/**
+		  * Same as approxSetCover(problem, covered, legalSets), except that the algorithm is not run when its solution 
+		  * is known to weigh at least weightLimit. This is decided before running the algorithm, using the lower bound 
+		  * on the weight of every cover given by the sum, over the uncovered elements, of the lowest ratio between the 
+		  * weight of a legal set containing the element and the number of uncovered elements in that set. 
+		  * (Every cover pays at least this ratio for each of its uncovered elements, so it weighs at least the sum)
+		  * 
+		  * @param problem the problem to be solved
+		  * @param covered a BitSet indicating which elements of the universe are assumed to already be covered
+		  * @param legalSets a BitSet indicating which sets can be used in the solution 
+		  * @param weightLimit only solutions lighter than this are of interest (Integer.MAX_VALUE if all solutions are)
+		  * @return a solution to the weighted set cover problem for the given input, or null if there is no solution, 
+		  * or if every solution weighs at least weightLimit
+		  */
+		public Solution approxSetCover(SetCoverProblem problem, BitSet covered, BitSet legalSets, int weightLimit) {
 			
-			//update universe size and number of sets according to the original problem
-			universeSize = problem.getUniverseSize();
-			numOfSets = problem.getNumberOfSets();
+			return approxSetCover(problem, FixedBitSet.valueOf(covered, problem.getUniverseSize()), 
+					FixedBitSet.valueOf(legalSets, problem.getNumberOfSets()), weightLimit);
+		}
+		
+		/**
+		  * Same as approxSetCover(problem, covered, legalSets, weightLimit), where covered is a FixedBitSet of size of 
+		  * the universe and legalSets is a FixedBitSet of size of the number of sets. Neither set is changed
+		  */
+		Solution approxSetCover(SetCoverProblem problem, FixedBitSet covered, FixedBitSet legalSets, int weightLimit) {
+		
+			//log the fact that this function is run, and how long it took
+			long startTime = System.nanoTime();
+			Solution solution = solve(problem, covered, legalSets, weightLimit);
+			if (solution != PRUNED) {
+				greedyCalls.increment();
+				greedyLatency.record(System.nanoTime() - startTime);
+				return solution;
+			}
+			prunedCalls.increment();
+			return null;
+		}
+		
+		/**
+		  * Runs the algorithm (see approxSetCover)
+		  */
+		private Solution solve(SetCoverProblem problem, FixedBitSet covered, FixedBitSet legalSets, int weightLimit) {
+			
+			//make sure the scratch arrays fit the problem (they are reused by later calls on the same problem)
+			allocateScratch(problem);
 			
 			//create an empty solution
 			Solution solution = new Solution();
 			
-			//store a copy of the problem (so that we can make changes)
-			problemCopy = (SetCoverProblem)problem.clone();
-			
-			//store a copy of the set of universe elements already covered
-			BitSet coveredCopy = (BitSet)covered.clone();
+			//mark the universe elements already covered
+			elemCovered.copyFrom(covered);
+			numCovered = elemCovered.cardinality();
 			
-			//find which elements can potentially be covered by first setting this to those already covered
-			BitSet canStillBeCovered = new BitSet(universeSize);
-			canStillBeCovered.or(coveredCopy);
+			//count, for every legal set, the elements in it that are not already covered. Illegal sets are treated as empty
+			//(dense sets are counted word by word, see SetCoverProblem.getDenseSet)
+			Arrays.fill(currSetSize, 0);
+			for (int i = legalSets.nextSetBit(0) ; i != -1 ; i = legalSets.nextSetBit(i+1)) {
+				
+				FixedBitSet dense = problem.getDenseSet(i);
+				if (dense != null) currSetSize[i] = dense.andNotCardinality(elemCovered);
+				else currSetSize[i] = elemCovered.countClear(setElements, setOffsets[i], setOffsets[i+1]);
+			}
 			
-			//add into the list of elements that can be covered all those appearing in legal sets
-			for (int i = 0 ; i < numOfSets ; i++) {
+			//check if there is a solution to the problem, i.e., if every uncovered element appears in some legal set
+			//(a set containing an uncovered element has a positive count if and only if it is legal)
+			for (int e = 0 ; e < universeSize ; e++) {
 				
-				BitSet set = problemCopy.getSet(i);
-				//clear all ilegal sets so that they cover no elements
-				if (!legalSets.get(i)) 
-					set.clear();
-				else {
-					//add all elements in the set that are not already in the covered copy to the list of those that can be covered
-					set.andNot(coveredCopy);
-					canStillBeCovered.or(set);
+				if (elemCovered.get(e)) continue;
+				boolean canBeCovered = false;
+				for (int j = elementOffsets[e] ; j < elementOffsets[e+1] && !canBeCovered ; j++) {
+					canBeCovered = currSetSize[elementSets[j]] > 0;
 				}
+				if (!canBeCovered) return null;
 			}
 			
-			//check if there is a solution to the problem, i.e., if there exists a set cover covering all elements
-			if (canStillBeCovered.cardinality() != universeSize) return null;			
+			if (weightLimit != Integer.MAX_VALUE && lowerBound() >= weightLimit) return PRUNED;
+			
+			buildHeap();
 	
 			//find a set cover using a greedy strategy
-			while (coveredCopy.cardinality() < universeSize) {
-				int bestSet = -1;
-				double bestRatio = Double.MAX_VALUE;
+			while (numCovered < universeSize) {
 				
-				for (int i = 0 ; i < numOfSets ; i++) {
-					BitSet set = problemCopy.getSet(i);
-					//update the set so that it only contains elements not yet covered
-					//this is important for cardinality to be computed correctly later only
-					set.andNot(coveredCopy);
-					
-					if (set.cardinality() > 0) {
+				int bestSet = heap[0];
+				
+				//the entry at the top is stale, so reinsert the set with its current ratio (or drop it if it covers nothing new)
+				if (heapSetSize[bestSet] != currSetSize[bestSet]) {
 					
-						double currRatio = ((double)problemCopy.getWeight(i))/set.cardinality();
-						if (currRatio < bestRatio) {
-							bestSet = i;
-							bestRatio = currRatio;
-						}
+					if (currSetSize[bestSet] == 0) {
+						removeTop();
 					}
-					
+					else {
+						setRatio(bestSet);
+						siftDown(0);
+					}
+					continue;
 				}
+				
 				// update solution with best set found
-				solution.addSet(bestSet, problemCopy.getWeight(bestSet));
-				coveredCopy.or(problemCopy.getSet(bestSet));
+				removeTop();
+				solution.addSet(bestSet, problem.getWeight(bestSet));
+				
+				//mark the newly covered elements, and update the counts of all legal sets containing them
+				//(illegal sets, and only they, have a count of 0 while containing an uncovered element)
+				for (int i = setOffsets[bestSet] ; i < setOffsets[bestSet+1] ; i++) {
+					
+					int e = setElements[i];
+					if (elemCovered.get(e)) continue;
+					elemCovered.set(e);
+					numCovered++;
+					for (int j = elementOffsets[e] ; j < elementOffsets[e+1] ; j++) {
+						if (currSetSize[elementSets[j]] > 0) currSetSize[elementSets[j]]--;
+					}
+				}
 			}	
 			
 			return solution;
 		}
 		
+		/**
+		  * Computes a lower bound on the weight of every cover of the uncovered elements using legal sets 
+		  * (see approxSetCover), assuming that currSetSize holds the number of uncovered elements in every legal set
+		  * @return the lower bound, rounded up to an integer (as weights are integers)
+		  */
+		private long lowerBound() {
+			
+			double bound = 0;
+			for (int e = 0 ; e < universeSize ; e++) {
+				
+				if (elemCovered.get(e)) continue;
+				double lowestRatio = Double.MAX_VALUE;
+				for (int j = elementOffsets[e] ; j < elementOffsets[e+1] ; j++) {
+					
+					int s = elementSets[j];
+					if (currSetSize[s] > 0) lowestRatio = Math.min(lowestRatio, (double)problem.getWeight(s) / currSetSize[s]);
+				}
+				bound += lowestRatio;
+			}
+			//allow for rounding errors, so that the bound is never higher than the weight of a cover
+			return (long)Math.ceil(bound - 1e-9 * (bound + 1));
+		}
+		
+		/**
+		  * Allocates the scratch arrays used by the algorithm, unless they were already allocated for the given problem
+		  * @param problem the problem to be solved
+		  */
+		private void allocateScratch(SetCoverProblem problem) {
+			
+			if (problem == this.problem) return;
+			
+			this.problem = problem;
+			universeSize = problem.getUniverseSize();
+			numOfSets = problem.getNumberOfSets();
+			
+			setOffsets = problem.getSetOffsets();
+			setElements = problem.getSetElements();
+			elementOffsets = problem.getElementOffsets();
+			elementSets = problem.getElementSets();
+			
+			currSetSize = new int[numOfSets];
+			ratio = new double[numOfSets];
+			heapSetSize = new int[numOfSets];
+			heap = new int[numOfSets];
+			elemCovered = new FixedBitSet(universeSize);
+		}
+		
+		/**
+		  * Builds a heap containing all sets that cover at least one uncovered element
+		  */
+		private void buildHeap() {
+			
+			heapSize = 0;
+			for (int i = 0 ; i < numOfSets ; i++) {
+				
+				if (currSetSize[i] > 0) {
+					setRatio(i);
+					heap[heapSize++] = i;
+				}
+			}
+			for (int pos = heapSize/2 - 1 ; pos >= 0 ; pos--) {
+				siftDown(pos);
+			}
+		}
+		
+		/** 
+		  * Recomputes the ratio of a set according to its current number of uncovered elements
+		  * @param set the index of a set
+		  */
+		private void setRatio(int set) {
+			
+			heapSetSize[set] = currSetSize[set];
+			ratio[set] = ((double)problem.getWeight(set))/currSetSize[set];
+		}
+		
+		/**
+		  * @param a the index of a set in the heap
+		  * @param b the index of a set in the heap
+		  * @return true if set a should be chosen before set b
+		  */
+		private boolean before(int a, int b) {
+			
+			return ratio[a] < ratio[b] || (ratio[a] == ratio[b] && a < b);
+		}
+		
+		/**
+		  * Removes the set at the top of the heap
+		  */
+		private void removeTop() {
+			
+			heap[0] = heap[--heapSize];
+			siftDown(0);
+		}
+		
+		/**
+		  * Moves the set at the given heap position down, until the heap order is restored
+		  * @param pos a position in the heap
+		  */
+		private void siftDown(int pos) {
+			
+			int set = heap[pos];
+			while (true) {
+				
+				int child = 2*pos + 1;
+				if (child >= heapSize) break;
+				if (child + 1 < heapSize && before(heap[child+1], heap[child])) child++;
+				if (!before(heap[child], set)) break;
+				heap[pos] = heap[child];
+				pos = child;
+			}
+			heap[pos] = set;
+		}
+		
 		
 		
-		static public void main(String[] inp) throws FileNotFoundException {
+		static public void main(String[] inp) throws IOException {
 			
 			Solution s = (new GreedyMinSetCover()).approxSetCover(SetCoverProblemGenerator.generateSetCoverProblem(inp[0]));
 			System.out.println(s);
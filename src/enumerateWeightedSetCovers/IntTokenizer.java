@@ -0,0 +1,149 @@
+package enumerateWeightedSetCovers;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+  * A tokenizer that reads whitespace separated integers from a memory mapped text file.
+  *
+  * This replaces java.util.Scanner in the problem loaders: the file is mapped once, and integers are parsed
+  * directly from its bytes, without creating strings or regular expression matchers. Like Scanner, the
+  * tokenizer throws NoSuchElementException when there are no more integers, and InputMismatchException when
+  * the next token is not an integer.
+  */
+class IntTokenizer {
+
+	/**
+	  * The contents of the file
+	  */
+	private MappedByteBuffer buffer;
+
+	/**
+	  * The position of the next byte to read
+	  */
+	private int pos = 0;
+
+	/**
+	  * The size of the file
+	  */
+	private int limit;
+
+	/**
+	  * Maps the given file into memory
+	  * @param fileName the name of a text file
+	  * @throws FileNotFoundException if the file does not exist
+	  * @throws IOException if the file cannot be mapped (e.g., if it is larger than 2GB)
+	  */
+	public IntTokenizer(String fileName) throws IOException {
+
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r") ; FileChannel channel = file.getChannel()) {
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			limit = buffer.limit();
+		}
+	}
+
+	/**
+	  * @return true if there is another token in the file
+	  */
+	public boolean hasNextInt() {
+
+		skipWhitespace(true);
+		return pos < limit;
+	}
+
+	/**
+	  * @return true if there is another token before the end of the current line
+	  */
+	public boolean hasNextIntOnLine() {
+
+		skipWhitespace(false);
+		return pos < limit && buffer.get(pos) != '\n';
+	}
+
+	/**
+	  * Moves to the beginning of the next line, skipping the rest of the current line
+	  */
+	public void nextLine() {
+
+		while (pos < limit && buffer.get(pos) != '\n') pos++;
+		if (pos < limit) pos++;
+	}
+
+	/**
+	  * @return the next integer in the file
+	  */
+	public int nextInt() {
+
+		skipWhitespace(true);
+		if (pos >= limit) throw new NoSuchElementException();
+
+		boolean negative = false;
+		if (buffer.get(pos) == '-' || buffer.get(pos) == '+') {
+			negative = buffer.get(pos) == '-';
+			pos++;
+		}
+
+		int start = pos;
+		long value = 0;
+		while (pos < limit) {
+
+			int digit = buffer.get(pos) - '0';
+			if (digit < 0 || digit > 9) break;
+			value = value * 10 + digit;
+			if (value > (long)Integer.MAX_VALUE + 1) throw new InputMismatchException("Integer too large at byte " + start);
+			pos++;
+		}
+
+		if (pos == start || (pos < limit && !isWhitespace(buffer.get(pos))))
+			throw new InputMismatchException("Not an integer at byte " + start);
+		if (negative) value = -value;
+		if (value > Integer.MAX_VALUE) throw new InputMismatchException("Integer too large at byte " + start);
+		return (int)value;
+	}
+
+	/**
+	  * Counts the lines of the whole file that contain something other than whitespace. 
+	  * Does not change the position of the tokenizer
+	  * @return the number of non-empty lines in the file
+	  */
+	public int countNonEmptyLines() {
+
+		int count = 0;
+		boolean empty = true;
+		for (int i = 0 ; i < limit ; i++) {
+
+			byte b = buffer.get(i);
+			if (b == '\n') {
+				if (!empty) count++;
+				empty = true;
+			}
+			else if (!isWhitespace(b)) empty = false;
+		}
+		if (!empty) count++;
+		return count;
+	}
+
+	/**
+	  * Skips whitespace
+	  * @param newLines true if line breaks should be skipped as well
+	  */
+	private void skipWhitespace(boolean newLines) {
+
+		while (pos < limit) {
+
+			byte b = buffer.get(pos);
+			if (!isWhitespace(b) || (b == '\n' && !newLines)) break;
+			pos++;
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+	}
+}
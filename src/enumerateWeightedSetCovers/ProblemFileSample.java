@@ -0,0 +1,131 @@
+package enumerateWeightedSetCovers;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+
+/**
+  * The beginning of a file, as used for detecting its format (see ProblemFormat). 
+  * The sample holds the first bytes of the file, and the integers on each of its first non-empty lines
+  */
+public class ProblemFileSample {
+	
+	/**
+	  * The maximal number of lines in a sample
+	  */
+	public static final int MAX_LINES = 256;
+	
+	/**
+	  * The number of bytes in the prefix of the sample
+	  */
+	public static final int PREFIX_LENGTH = 8;
+	
+	/**
+	  * The name of the file
+	  */
+	private String fileName;
+	
+	/**
+	  * The first bytes of the file
+	  */
+	private byte[] prefix;
+	
+	/** 
+	  * The integers on each of the first non-empty lines, or null for a line with a token that is not an integer
+	  */
+	private ArrayList<int[]> lines = new ArrayList<int[]>();
+	
+	/**
+	  * The tokenizer of the file, used for counting its lines when needed
+	  */
+	private IntTokenizer tokenizer;
+	
+	/**
+	  * The number of non-empty lines in the file, or -1 if they were not counted yet
+	  */
+	private int numberOfLines = -1;
+	
+	/**
+	  * Reads a sample of the given file
+	  * @param fileName the name of the file
+	  */
+	public ProblemFileSample(String fileName) throws IOException {
+		
+		this.fileName = fileName;
+		
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+			
+			prefix = new byte[(int)Math.min(PREFIX_LENGTH, file.length())];
+			file.readFully(prefix);
+		}
+		
+		tokenizer = new IntTokenizer(fileName);
+		while (lines.size() < MAX_LINES && tokenizer.hasNextInt()) {
+			
+			ArrayList<Integer> line = new ArrayList<Integer>();
+			boolean integers = true;
+			try {
+				while (tokenizer.hasNextIntOnLine()) line.add(tokenizer.nextInt());
+			}
+			catch (InputMismatchException e) {
+				integers = false;
+			}
+			tokenizer.nextLine();
+			
+			int[] ints = null;
+			if (integers) {
+				ints = new int[line.size()];
+				for (int i = 0 ; i < ints.length ; i++) ints[i] = line.get(i);
+			}
+			lines.add(ints);
+		}
+	}
+	
+	/**
+	  * @return the name of the file
+	  */
+	public String getFileName() {
+		return fileName;
+	}
+	
+	/**
+	  * @return the first bytes of the file (fewer than PREFIX_LENGTH only if the file is shorter)
+	  */
+	public byte[] getPrefix() {
+		return prefix;
+	}
+	
+	/**
+	  * @return the number of sampled lines
+	  */
+	public int getNumberOfSampledLines() {
+		return lines.size();
+	}
+	
+	/**
+	  * @param i the index of a line, where 0 is the first non-empty line of the file
+	  * @return the integers on the line, or null if the line contains a token that is not an integer, 
+	  * or if it was not sampled (e.g., if the file has no such line)
+	  */
+	public int[] getLine(int i) {
+		return i < lines.size() ? lines.get(i) : null;
+	}
+	
+	/**
+	  * @return true if the file has more lines than were sampled
+	  */
+	public boolean isTruncated() {
+		return lines.size() < getNumberOfLines();
+	}
+	
+	/**
+	  * Counts the non-empty lines in the whole file (only when first called)
+	  * @return the number of non-empty lines in the file
+	  */
+	public int getNumberOfLines() {
+		
+		if (numberOfLines == -1) numberOfLines = tokenizer.countNonEmptyLines();
+		return numberOfLines;
+	}
+}
@@ -0,0 +1,28 @@
+package enumerateWeightedSetCovers;
+
+import java.io.IOException;
+
+/**
+  * A file format of weighted set cover problems. Formats are registered with SetCoverProblemGenerator, which 
+  * uses them to detect the format of a file from its contents, and to load it
+  */
+public interface ProblemFormat {
+	
+	/**
+	  * @return the name of the format, used for selecting it explicitly
+	  */
+	String getName();
+	
+	/**
+	  * @param sample the beginning of a file
+	  * @return true if the file seems to be in this format
+	  */
+	boolean recognizes(ProblemFileSample sample) throws IOException;
+	
+	/**
+	  * Loads a problem stored in this format, in a single pass over the file
+	  * @param fileName the name of the file
+	  * @return the problem
+	  */
+	SetCoverProblem load(String fileName) throws IOException;
+}
@@ -0,0 +1,347 @@
+package enumerateWeightedSetCovers;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+  * A reduction of a set cover problem to a smaller problem, and the mapping of solutions of the reduced problem
+  * back to solutions of the original problem.
+  *
+  * The reduction repeats the following steps, as long as they change the problem:
+  *    - mandatory sets: a set that is the only set containing some element is in every cover. It is removed from the
+  *      problem, together with all of its elements, and is added to every solution when it is mapped back
+  *    - duplicate sets: of several sets with the same elements, only the lightest (or the first, if there are several)
+  *      is kept
+  *    - dominated sets: a set that is contained in another set, which is not heavier, is removed
+  * where the elements of a set are only those that are still in the problem.
+  *
+  * Fixing mandatory sets does not change the covers of the problem: every cover of the original problem is a cover
+  * of the reduced problem together with the mandatory sets, and it is non-redundant if and only if the cover of the
+  * reduced problem is. Removing duplicate and dominated sets drops the covers that use these sets. Since every such
+  * cover can be changed into a cover that is not heavier by replacing the removed sets, the lightest covers remain,
+  * but fewer covers are enumerated.
+  */
+public class ProblemReduction {
+
+	/**
+	  * The original problem
+	  */
+	private SetCoverProblem original;
+
+	/**
+	  * The reduced problem
+	  */
+	private SetCoverProblem reduced;
+
+	/**
+	  * Whether duplicate and dominated sets were removed
+	  */
+	private boolean removeDominated;
+
+	/**
+	  * For every set of the reduced problem, the index of the same set in the original problem
+	  */
+	private int[] originalSet;
+
+	/**
+	  * The sets that are in every cover of the original problem
+	  */
+	private BitSet mandatorySets = new BitSet();
+
+	/**
+	  * The total weight of the mandatory sets
+	  */
+	private int mandatoryWeight = 0;
+
+	/**
+	  * The sets that are still in the problem (neither mandatory nor removed)
+	  */
+	private BitSet liveSets = new BitSet();
+
+	/**
+	  * The elements that are still in the problem (not covered by a mandatory set)
+	  */
+	private BitSet liveElements = new BitSet();
+
+	/**
+	  * For every live set, the number of its live elements
+	  */
+	private int[] liveSize;
+
+	/**
+	  * Reduces a problem, using all the steps (see the description of the class)
+	  * @param problem the problem to be reduced
+	  */
+	public ProblemReduction(SetCoverProblem problem) {
+		this(problem, true);
+	}
+
+	/**
+	  * Reduces a problem
+	  * @param problem the problem to be reduced
+	  * @param removeDominated true if duplicate and dominated sets should be removed, false if only mandatory sets should
+	  * be fixed (which keeps all the covers of the problem)
+	  */
+	public ProblemReduction(SetCoverProblem problem, boolean removeDominated) {
+
+		original = problem;
+		this.removeDominated = removeDominated;
+		int numOfSets = problem.getNumberOfSets();
+		int universeSize = problem.getUniverseSize();
+
+		liveSets.set(0, numOfSets);
+		liveElements.set(0, universeSize);
+		liveSize = new int[numOfSets];
+		for (int i = 0 ; i < numOfSets ; i++) {
+			liveSize[i] = problem.getSetSize(i);
+		}
+
+		boolean changed = true;
+		while (changed) {
+
+			changed = fixMandatorySets();
+			if (removeDominated) {
+				changed |= removeDuplicateSets();
+				changed |= removeDominatedSets();
+			}
+		}
+		buildReducedProblem();
+	}
+
+	/**
+	  * @return the original problem
+	  */
+	public SetCoverProblem getOriginalProblem() {
+		return original;
+	}
+
+	/**
+	  * @return the reduced problem
+	  */
+	public SetCoverProblem getReducedProblem() {
+		return reduced;
+	}
+
+	/**
+	  * @return true if duplicate and dominated sets were removed, false if only mandatory sets were fixed
+	  */
+	public boolean removesDominated() {
+		return removeDominated;
+	}
+
+	/**
+	  * @param reducedSet the index of a set in the reduced problem
+	  * @return the index of the same set in the original problem
+	  */
+	public int getOriginalSet(int reducedSet) {
+		return originalSet[reducedSet];
+	}
+
+	/**
+	  * @return the sets (of the original problem) that are in every cover. The returned set must not be changed
+	  */
+	public BitSet getMandatorySets() {
+		return mandatorySets;
+	}
+
+	/**
+	  * @param solution a solution of the reduced problem
+	  * @return the corresponding solution of the original problem, i.e., the same sets (with their original indices) and the mandatory sets
+	  */
+	public Solution toOriginal(Solution solution) {
+
+		BitSet sets = (BitSet)mandatorySets.clone();
+		BitSet reducedSets = solution.getSolution();
+		for (int i = reducedSets.nextSetBit(0) ; i != -1 ; i = reducedSets.nextSetBit(i+1)) {
+			sets.set(originalSet[i]);
+		}
+		return new Solution(sets, solution.getWeight() + mandatoryWeight);
+	}
+
+	/**
+	  * Fixes the sets that are the only live sets containing some live element
+	  * @return true if a set was fixed
+	  */
+	private boolean fixMandatorySets() {
+
+		int[] elementOffsets = original.getElementOffsets();
+		int[] elementSets = original.getElementSets();
+
+		boolean changed = false;
+		for (int e = liveElements.nextSetBit(0) ; e != -1 ; e = liveElements.nextSetBit(e+1)) {
+
+			int onlySet = -1, numSets = 0;
+			for (int j = elementOffsets[e] ; j < elementOffsets[e+1] && numSets < 2 ; j++) {
+				if (liveSets.get(elementSets[j])) {
+					onlySet = elementSets[j];
+					numSets++;
+				}
+			}
+			// an element that no set contains is left in the problem, which thus has no solution
+			if (numSets != 1) continue;
+
+			liveSets.clear(onlySet);
+			mandatorySets.set(onlySet);
+			mandatoryWeight += original.getWeight(onlySet);
+			removeElementsOf(onlySet);
+			changed = true;
+		}
+		return changed;
+	}
+
+	/**
+	  * Removes the live elements of a set from the problem, updating the sizes of all live sets containing them
+	  */
+	private void removeElementsOf(int set) {
+
+		int[] setOffsets = original.getSetOffsets();
+		int[] setElements = original.getSetElements();
+		int[] elementOffsets = original.getElementOffsets();
+		int[] elementSets = original.getElementSets();
+
+		for (int j = setOffsets[set] ; j < setOffsets[set+1] ; j++) {
+
+			int e = setElements[j];
+			if (!liveElements.get(e)) continue;
+			liveElements.clear(e);
+			for (int k = elementOffsets[e] ; k < elementOffsets[e+1] ; k++) {
+				liveSize[elementSets[k]]--;
+			}
+		}
+	}
+
+	/**
+	  * @return the live elements of a set
+	  */
+	private BitSet liveElementsOf(int set) {
+
+		int[] setOffsets = original.getSetOffsets();
+		int[] setElements = original.getSetElements();
+		BitSet elements = new BitSet();
+		for (int j = setOffsets[set] ; j < setOffsets[set+1] ; j++) {
+			if (liveElements.get(setElements[j])) elements.set(setElements[j]);
+		}
+		return elements;
+	}
+
+	/**
+	  * Removes every set whose live elements are the same as those of a lighter (or equally heavy and earlier) set
+	  * @return true if a set was removed
+	  */
+	private boolean removeDuplicateSets() {
+
+		HashMap<BitSet, Integer> kept = new HashMap<BitSet, Integer>();
+		boolean changed = false;
+		for (int i = liveSets.nextSetBit(0) ; i != -1 ; i = liveSets.nextSetBit(i+1)) {
+
+			BitSet elements = liveElementsOf(i);
+			Integer other = kept.get(elements);
+			if (other == null) {
+				kept.put(elements, i);
+				continue;
+			}
+
+			if (original.getWeight(i) < original.getWeight(other)) {
+				liveSets.clear(other);
+				kept.put(elements, i);
+			}
+			else liveSets.clear(i);
+			changed = true;
+		}
+		return changed;
+	}
+
+	/**
+	  * Removes every set whose live elements are contained in those of another set that is not heavier. Assumes that
+	  * there are no duplicate sets, so that a set never dominates a set that dominates it
+	  * @return true if a set was removed
+	  */
+	private boolean removeDominatedSets() {
+
+		int[] setOffsets = original.getSetOffsets();
+		int[] setElements = original.getSetElements();
+		int[] elementOffsets = original.getElementOffsets();
+		int[] elementSets = original.getElementSets();
+
+		boolean changed = false;
+		int numLiveSets = liveSets.cardinality();
+		for (int i = liveSets.nextSetBit(0) ; i != -1 ; i = liveSets.nextSetBit(i+1)) {
+
+			// a dominating set contains every live element of the set, and in particular the one in fewest sets
+			int rarest = -1;
+			for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+
+				int e = setElements[j];
+				if (liveElements.get(e) && (rarest == -1 || original.getNumberOfSetsContaining(e) < original.getNumberOfSetsContaining(rarest)))
+					rarest = e;
+			}
+			// a set without live elements is dominated by every set (but is never mandatory, so it is kept if it is the only set)
+			if (rarest == -1) {
+				if (numLiveSets > 1) {
+					liveSets.clear(i);
+					numLiveSets--;
+					changed = true;
+				}
+				continue;
+			}
+
+			for (int k = elementOffsets[rarest] ; k < elementOffsets[rarest+1] ; k++) {
+
+				int other = elementSets[k];
+				if (other == i || !liveSets.get(other) || liveSize[other] < liveSize[i] || original.getWeight(other) > original.getWeight(i))
+					continue;
+
+				boolean contained = true;
+				for (int j = setOffsets[i] ; j < setOffsets[i+1] && contained ; j++) {
+
+					int e = setElements[j];
+					contained = !liveElements.get(e) || original.contains(other, e);
+				}
+				if (contained) {
+					liveSets.clear(i);
+					numLiveSets--;
+					changed = true;
+					break;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	  * Builds the reduced problem from the live sets and elements, renumbering both
+	  */
+	private void buildReducedProblem() {
+
+		int[] newElement = new int[original.getUniverseSize()];
+		int universeSize = 0;
+		for (int e = liveElements.nextSetBit(0) ; e != -1 ; e = liveElements.nextSetBit(e+1)) {
+			newElement[e] = universeSize++;
+		}
+
+		int numOfSets = liveSets.cardinality();
+		originalSet = new int[numOfSets];
+		int[] weights = new int[numOfSets];
+		int[] setOffsets = new int[numOfSets + 1];
+		int i = 0;
+		for (int s = liveSets.nextSetBit(0) ; s != -1 ; s = liveSets.nextSetBit(s+1)) {
+
+			originalSet[i] = s;
+			weights[i] = original.getWeight(s);
+			setOffsets[i+1] = setOffsets[i] + liveSize[s];
+			i++;
+		}
+
+		int[] originalOffsets = original.getSetOffsets();
+		int[] originalElements = original.getSetElements();
+		int[] setElements = new int[setOffsets[numOfSets]];
+		int pos = 0;
+		for (i = 0 ; i < numOfSets ; i++) {
+			for (int j = originalOffsets[originalSet[i]] ; j < originalOffsets[originalSet[i]+1] ; j++) {
+				if (liveElements.get(originalElements[j])) setElements[pos++] = newElement[originalElements[j]];
+			}
+		}
+
+		reduced = new SetCoverProblem(numOfSets, universeSize, weights, setOffsets, setElements);
+	}
+}
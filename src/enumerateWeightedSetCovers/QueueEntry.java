@@ -0,0 +1,110 @@
+package enumerateWeightedSetCovers;
+
+import java.util.BitSet;
+
+/**
+  * Class QueueEntry is used as entry values for the priority queue
+  * Each entry contains 4 fields:
+  *    - sol: the solution represented by the entry, stored compactly as its weight and the indices of its sets
+  *    - second: a set indicating which sets are allowed in the "second" part of the queue entry as in the paper
+  *    - third: a set indicating which sets are allowed in the "third" part of the queue entry as in the paper
+  *    - fromQ1: a boolean value indicating if this is a Q1 entry or Q2 entry (from the paper)
+  * The second and third parts are immutable, and typically share most of their memory with those of the 
+  * entry they were derived from and of its other children (see SharedBitSet)
+  */
+class QueueEntry implements Comparable<QueueEntry> {
+
+	int weight;
+	int[] sets;
+	SharedBitSet second;
+	SharedBitSet third;
+	boolean fromQ1;
+	
+	/**
+	  * The estimated memory of an entry in addition to its sets, in bytes
+	  */
+	static final int OVERHEAD_BYTES = 96;
+	
+	public QueueEntry(Solution sol, SharedBitSet second, SharedBitSet third, boolean fromQ1) {
+		
+		this.weight = sol.getWeight();
+		this.sets = sol.getSolution().stream().toArray();
+		this.second = second;
+		this.third = third;
+		this.fromQ1 = fromQ1;
+	}
+	
+	/**
+	  * Creates an entry from its fields (as read from a file)
+	  * @param sets the indices of the sets of the solution, in increasing order
+	  */
+	QueueEntry(int weight, int[] sets, SharedBitSet second, SharedBitSet third, boolean fromQ1) {
+		
+		this.weight = weight;
+		this.sets = sets;
+		this.second = second;
+		this.third = third;
+		this.fromQ1 = fromQ1;
+	}
+	
+	/**
+	  * @return the weight of the solution represented by the entry
+	  */
+	public int getWeight() {
+		return weight;
+	}
+	
+	/**
+	  * @return a new Solution object with the solution represented by the entry
+	  */
+	public Solution getSolution() {
+		
+		BitSet bits = new BitSet();
+		for (int i = 0 ; i < sets.length ; i++) {
+			bits.set(sets[i]);
+		}
+		return new Solution(bits, weight);
+	}
+	
+	/**
+	  * @param numOfSets the number of sets in the problem
+	  * @return a new FixedBitSet with the sets of the solution represented by the entry
+	  */
+	FixedBitSet getSets(int numOfSets) {
+		
+		FixedBitSet bits = new FixedBitSet(numOfSets);
+		for (int i = 0 ; i < sets.length ; i++) {
+			bits.set(sets[i]);
+		}
+		return bits;
+	}
+	
+	/**
+	  * @return the estimated memory of the entry, in bytes. The second and third parts are mostly shared with other 
+	  * entries, so only the memory that they are charged for is counted (see SharedBitSet.estimatedBytes)
+	  */
+	public long estimatedBytes() {
+		return OVERHEAD_BYTES + 4L * sets.length + second.estimatedBytes() + third.estimatedBytes();
+	}
+	
+	public int compareTo(QueueEntry other) {
+		return weight - other.weight;
+	}
+	
+	static String bitSetString(BitSet bs) {
+		
+		String s = "{";
+		for (int i = bs.nextSetBit(0); i != -1 ; i = bs.nextSetBit(i+1)) {
+			s += "" + i + " ";
+		}
+		return s + "}";
+	}
+	
+	public String toString() {
+		
+		String queue = "Q1: ";
+		if (!fromQ1) queue = "Q2: ";
+		return queue + getSolution().toString() + " | " + second.toString() + " | " + third.toString();
+	}
+
+}
@@ -2,6 +2,7 @@ package enumerateWeightedSetCovers;
 
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Random;
@@ -9,30 +10,64 @@ import java.util.BitSet;
 
 /** 
   * The class SetCoverProblem is used to represent an instance of a weighted set cover problem. Internally, 
-  * a weighted set cover problem is represented by an array of integer weights and an ArrayList of BitSets, each 
-  * of which is the size of the universe. For a particular set, the members correspond to the bits with value 1
+  * a weighted set cover problem is represented by an array of integer weights and the sets, which are indexed 
+  * in both directions (from sets to their elements and from elements to the sets containing them) in a compressed 
+  * sparse row form of int arrays. Every set is thus kept as the sorted array of its elements, whose memory is 
+  * proportional to its size rather than to the size of the universe. A dense set, i.e., a set with at least one 
+  * element in every DENSE_SET_RATIO elements of the universe, is also kept as a FixedBitSet of size of the universe, 
+  * which takes at most as much memory as its elements, and is used for word by word coverage operations.
+  * The representation of every set is selected when the instance is created.
+  * An instance is never changed once it is created, so several enumerations (possibly of different instances, 
+  * in different threads) may share it
   */
 public class SetCoverProblem implements Cloneable {
 	
 		/**
 		  * the number of sets in the instance of the problem
 		  */
-		private int numOfSets; 
+		private final int numOfSets; 
 		
 		/**
 		  * the size of the universe
 		  */
-		private int universeSize; 
+		private final int universeSize; 
 		
 		/**
 		  * the weights of the sets
 		  */
-		private static int[] weights; 
+		private final int[] weights; 
+		
+		/**
+		  * A set with at least one element in every DENSE_SET_RATIO elements of the universe is dense
+		  */
+		static final int DENSE_SET_RATIO = 32;
 		
 		/** 
-		  * the sets themselves, where each member of the array list corresponds to a set
+		  * The dense sets as FixedBitSets of size of the universe, and null for the other sets
+		  */
+		private FixedBitSet[] denseSets;
+		
+		/**
+		  * The sets in a compressed sparse row form: the elements of set i are 
+		  * setElements[setOffsets[i]], ..., setElements[setOffsets[i+1]-1], in increasing order
+		  */
+		private int[] setOffsets;
+		
+		/**
+		  * The elements of all sets, one set after the other (see setOffsets)
 		  */
-		private ArrayList<BitSet> setContents;
+		private int[] setElements;
+		
+		/**
+		  * The inverted index from elements to sets in a compressed sparse row form: the sets containing element e are 
+		  * elementSets[elementOffsets[e]], ..., elementSets[elementOffsets[e+1]-1], in increasing order
+		  */
+		private int[] elementOffsets;
+		
+		/**
+		  * The sets containing each element, one element after the other (see elementOffsets)
+		  */
+		private int[] elementSets;
 			
 		/**
 		  * @return the size of the universe
@@ -61,20 +96,93 @@ public class SetCoverProblem implements Cloneable {
 		
 		/**
 		  * @param setIndex the index of a set
-		  * @return the set
+		  * @return a new BitSet with the elements of the set
 		  */
 		public BitSet getSet(int setIndex) {
-			return setContents.get(setIndex);
+			
+			if (denseSets[setIndex] != null) return denseSets[setIndex].toBitSet();
+			
+			BitSet set = new BitSet();
+			for (int j = setOffsets[setIndex] ; j < setOffsets[setIndex+1] ; j++) {
+				set.set(setElements[j]);
+			}
+			return set;
+		}
+		
+		/**
+		  * @param setIndex the index of a set
+		  * @param element an element of the universe
+		  * @return true if the set contains the element
+		  */
+		public boolean contains(int setIndex, int element) {
+			
+			if (denseSets[setIndex] != null) return denseSets[setIndex].get(element);
+			return Arrays.binarySearch(setElements, setOffsets[setIndex], setOffsets[setIndex+1], element) >= 0;
+		}
+		
+		/**
+		  * The returned set is shared and must not be changed
+		  * @param setIndex the index of a set
+		  * @return the set as a FixedBitSet of size of the universe if it is dense (see DENSE_SET_RATIO), and null otherwise
+		  */
+		FixedBitSet getDenseSet(int setIndex) {
+			return denseSets[setIndex];
+		}
+		
+		/**
+		  * @param setIndex the index of a set
+		  * @return the number of elements in the set
+		  */
+		public int getSetSize(int setIndex) {
+			return setOffsets[setIndex+1] - setOffsets[setIndex];
+		}
+		
+		/**
+		  * @param element an element of the universe
+		  * @return the number of sets containing the element
+		  */
+		public int getNumberOfSetsContaining(int element) {
+			return elementOffsets[element+1] - elementOffsets[element];
+		}
+		
+		/**
+		  * The elements of set i are getSetElements()[getSetOffsets()[i]], ..., getSetElements()[getSetOffsets()[i+1]-1].
+		  * The returned array is shared and must not be changed
+		  * @return the offsets of the sets in getSetElements(), with an additional last entry holding its length
+		  */
+		public int[] getSetOffsets() {
+			return setOffsets;
+		}
+		
+		/**
+		  * The returned array is shared and must not be changed
+		  * @return the elements of all sets, one set after the other, where the elements of each set are in increasing order 
+		  */
+		public int[] getSetElements() {
+			return setElements;
+		}
+		
+		/**
+		  * The sets containing element e are getElementSets()[getElementOffsets()[e]], ..., getElementSets()[getElementOffsets()[e+1]-1].
+		  * The returned array is shared and must not be changed
+		  * @return the offsets of the elements in getElementSets(), with an additional last entry holding its length
+		  */
+		public int[] getElementOffsets() {
+			return elementOffsets;
+		}
+		
+		/**
+		  * The returned array is shared and must not be changed
+		  * @return the sets containing each element, one element after the other, where the sets of each element are in increasing order
+		  */
+		public int[] getElementSets() {
+			return elementSets;
 		}
 		
 		
 		public Object clone() {
 			
-			ArrayList<BitSet> setContentsCopy = new ArrayList<BitSet>();
-			for (int i = 0 ; i < numOfSets ; i++) {
-				setContentsCopy.add((BitSet)setContents.get(i).clone());
-			}
-			return new SetCoverProblem(numOfSets, universeSize, setContentsCopy);
+			return new SetCoverProblem(numOfSets, universeSize, weights.clone(), setOffsets.clone(), setElements.clone());
 		}
 		
 		/**
@@ -83,18 +191,62 @@ public class SetCoverProblem implements Cloneable {
 		  * @return a nonredundant solution contained in the input parameter. A solution is nonredundant when no set can be removed, while still retaining the set cover property
 		  */ 
 		public Solution makeNonRedundant(Solution prev, BitSet covered) {
+			return makeNonRedundant(prev, covered, new int[universeSize]);
+		}
 		
-			Solution newSol = (Solution)prev.clone();
+		/**
+		  * Same as makeNonRedundant(prev, covered), using a given scratch array. The sets of the solution are considered 
+		  * in increasing order, and a set is removed if every element in it is either ignored or covered by another set 
+		  * that remains in the solution. This is decided using the number of sets of the solution covering every element, 
+		  * so removing a set takes time proportional to its size
+		  * 
+		  * @param prev a solution to the instance, when ignoring all universe elements indicated by covered
+		  * @param covered a set of bits indicating which universe elements can be ignored by the problem
+		  * @param coverCount a scratch array of at least getUniverseSize() zeros, which is filled with zeros again when the method returns
+		  * @return a nonredundant solution contained in the input parameter. A solution is nonredundant when no set can be removed, while still retaining the set cover property
+		  */ 
+		public Solution makeNonRedundant(Solution prev, BitSet covered, int[] coverCount) {
 		
-			for (int i = prev.getSolution().nextSetBit(0); i != -1 ; i = prev.getSolution().nextSetBit(i+1)) {
+			Solution newSol = (Solution)prev.clone();
+			BitSet sets = prev.getSolution();
 			
-				newSol.removeSet(i, getWeight(i));
-				BitSet coveredBySolution = getCoveredBy(newSol.getSolution());
-				coveredBySolution.or(covered);
+			//count the sets of the solution covering every element, and the elements covered by the solution alone
+			int numCovered = covered.cardinality();
+			for (int i = sets.nextSetBit(0); i != -1 ; i = sets.nextSetBit(i+1)) {
+				for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+					
+					int e = setElements[j];
+					if (coverCount[e]++ == 0 && !covered.get(e)) numCovered++;
+				}
+			}
+			
+			//if the solution is not a cover, no set can be removed while retaining the set cover property
+			if (numCovered == universeSize) {
 				
-				if (coveredBySolution.cardinality() != universeSize) {
-					newSol.addSet(i, getWeight(i));
-				}		
+				for (int i = sets.nextSetBit(0); i != -1 ; i = sets.nextSetBit(i+1)) {
+					
+					boolean removable = true;
+					for (int j = setOffsets[i] ; j < setOffsets[i+1] && removable ; j++) {
+						
+						int e = setElements[j];
+						removable = coverCount[e] > 1 || covered.get(e);
+					}
+					
+					if (removable) {
+						
+						newSol.removeSet(i, getWeight(i));
+						for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+							coverCount[setElements[j]]--;
+						}
+					}
+				}
+			}
+			
+			//restore the scratch array
+			for (int i = sets.nextSetBit(0); i != -1 ; i = sets.nextSetBit(i+1)) {
+				for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+					coverCount[setElements[j]] = 0;
+				}
 			}
 			return newSol;
 		}
@@ -106,34 +258,113 @@ public class SetCoverProblem implements Cloneable {
 		  */
 		public BitSet getCoveredBy(BitSet sets) {
 		
-			BitSet covered = new BitSet();
-			for (int i = sets.nextSetBit(0) ; i != -1 ; i = sets.nextSetBit(i+1)) {
+			return getCoveredBy(FixedBitSet.valueOf(sets, numOfSets)).toBitSet();
+		}
+		
+		/**
+		  * Adds the elements of a set to a BitSet of covered elements, in time proportional to the size of the set
+		  * (e.g., for updating the result of getCoveredBy when a set is added)
+		  * @param setIndex the index of a set
+		  * @param covered a BitSet of size of the universe, to which the elements of the set are added
+		  */
+		public void addCoveredBy(int setIndex, BitSet covered) {
+			
+			for (int j = setOffsets[setIndex] ; j < setOffsets[setIndex+1] ; j++) {
+				covered.set(setElements[j]);
+			}
+		}
+		
+		/**
+		  * Same as addCoveredBy(setIndex, covered), for a FixedBitSet of size of the universe
+		  */
+		void addCoveredBy(int setIndex, FixedBitSet covered) {
 			
-				BitSet elementsInSet = getSet(i);
-				covered.or(elementsInSet);
+			if (denseSets[setIndex] != null) {
+				covered.or(denseSets[setIndex]);
+				return;
+			}
+			for (int j = setOffsets[setIndex] ; j < setOffsets[setIndex+1] ; j++) {
+				covered.set(setElements[j]);
+			}
+		}
+		
+		/**
+		  * @param sets a FixedBitSet of size of the number of sets
+		  * @return a FixedBitSet of size of the universe which indicates which elements are covered by the given sets
+		  */
+		FixedBitSet getCoveredBy(FixedBitSet sets) {
+			
+			FixedBitSet covered = new FixedBitSet(universeSize);
+			for (int i = sets.nextSetBit(0) ; i != -1 ; i = sets.nextSetBit(i+1)) {
+				addCoveredBy(i, covered);
 			}
 			return covered;
 		}
 		
 		/**
-		  * Creates an instance of a SetCoverProblem with the given parameters. Used in cloning an object.
-		  * Note that the weights are not provided as we assume these are already available as a static data member
-		  * 
-		  * @param numOfSets the number of sets in the problem
-		  * @param universeSize the size of the universe in the problem
-		  * @param setContents the contents of the sets, as an array of sets of lit bits
+		  * Builds the compressed sparse row representation of the sets
+		  * @param setContents the contents of the sets
 		  */
-		public SetCoverProblem(int numOfSets, int universeSize, ArrayList<BitSet> setContents) {
+		private void buildIndex(ArrayList<BitSet> setContents) {
 			
-			this.numOfSets = numOfSets;
-			this.universeSize = universeSize;
-			this.setContents = setContents;
+			setOffsets = new int[numOfSets + 1];
+			for (int i = 0 ; i < numOfSets ; i++) {
+				setOffsets[i+1] = setOffsets[i] + setContents.get(i).cardinality();
+			}
+			
+			setElements = new int[setOffsets[numOfSets]];
+			int pos = 0;
+			for (int i = 0 ; i < numOfSets ; i++) {
+				
+				BitSet set = setContents.get(i);
+				for (int e = set.nextSetBit(0) ; e != -1 ; e = set.nextSetBit(e+1)) {
+					setElements[pos++] = e;
+				}
+			}
 		}
 		
+		/**
+		  * Keeps every dense set (see DENSE_SET_RATIO) also as a FixedBitSet
+		  */
+		private void buildDenseSets() {
+			
+			denseSets = new FixedBitSet[numOfSets];
+			for (int i = 0 ; i < numOfSets ; i++) {
+				
+				if ((long)getSetSize(i) * DENSE_SET_RATIO < universeSize) continue;
+				denseSets[i] = new FixedBitSet(universeSize);
+				for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+					denseSets[i].set(setElements[j]);
+				}
+			}
+		}
 		
+		/**
+		  * Builds the inverted index from elements to sets, using the compressed sparse row representation of the sets
+		  */
+		private void buildElementIndex() {
+			
+			elementOffsets = new int[universeSize + 1];
+			for (int j = 0 ; j < setElements.length ; j++) {
+				elementOffsets[setElements[j]+1]++;
+			}
+			for (int e = 0 ; e < universeSize ; e++) {
+				elementOffsets[e+1] += elementOffsets[e];
+			}
+			
+			elementSets = new int[elementOffsets[universeSize]];
+			int[] nextInElement = new int[universeSize];
+			System.arraycopy(elementOffsets, 0, nextInElement, 0, universeSize);
+			for (int i = 0 ; i < numOfSets ; i++) {
+				for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+					elementSets[nextInElement[setElements[j]]++] = i;
+				}
+			}
+		}
 		
 		/**
-		  * Creates an instance of a SetCoverProblem with the given parameters. 
+		  * Creates an instance of a SetCoverProblem with the given parameters. The weights are used by the problem, 
+		  * and must not be changed afterwards. The sets are only read
   		  * @param numOfSets the number of sets in the problem
 		  * @param universeSize the size of the universe in the problem
 		  * @param setContents the contents of the sets, as an array of sets of lit bits
@@ -143,9 +374,30 @@ public class SetCoverProblem implements Cloneable {
 			
 			this.numOfSets = numOfSets;
 			this.universeSize = universeSize;
-			this.setContents = setContents;
 			this.weights = weights;
+			buildIndex(setContents);
+			buildElementIndex();
+			buildDenseSets();
+		}
+		
+		/**
+		  * Creates an instance of a SetCoverProblem from the compressed sparse row representation of its sets 
+		  * (see getSetOffsets and getSetElements). The arrays are used by the problem, and must not be changed afterwards
+		  * @param numOfSets the number of sets in the problem
+		  * @param universeSize the size of the universe in the problem
+		  * @param weights the weights per set
+		  * @param setOffsets the offsets of the sets in setElements, with an additional last entry holding its length
+		  * @param setElements the elements of all sets, one set after the other, where the elements of each set are distinct and in increasing order
+		  */
+		public SetCoverProblem(int numOfSets, int universeSize, int[] weights, int[] setOffsets, int[] setElements) {
+			
+			this.numOfSets = numOfSets;
+			this.universeSize = universeSize;
+			this.weights = weights;
+			this.setOffsets = setOffsets;
+			this.setElements = setElements;
+			buildElementIndex();
+			buildDenseSets();
 		}
 		
 }
-
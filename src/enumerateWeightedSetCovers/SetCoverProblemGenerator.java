@@ -1,122 +1,546 @@
 package enumerateWeightedSetCovers;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+  * Loads instances of the weighted set cover problem from files. The text formats are parsed with a tokenizer over the 
+  * memory mapped file (see IntTokenizer), and the elements of every set are collected into a sorted array as they are 
+  * read, so loading never takes memory proportional to the size of the universe for every set (the problem then 
+  * selects the representation of every set, see SetCoverProblem). In addition, instances can be converted into a compact binary format, whose 
+  * arrays are read directly from the mapped file into the internal arrays of the problem:
+  * 
+  *    int magic ("WSCP"), int version, int universeSize, int numOfSets, 
+  *    int[numOfSets] weights, int[numOfSets+1] setOffsets, int[setOffsets[numOfSets]] setElements
+  * 
+  * where all integers are little-endian, and setOffsets/setElements are as in SetCoverProblem.getSetOffsets/getSetElements
+  * 
+  * The format of a file is selected explicitly by name, or detected from its contents: each registered format 
+  * (see ProblemFormat) is asked in turn whether it recognizes a sample of the file, so the file name does not matter
+  */
 public class SetCoverProblemGenerator {
 	
-	private static SetCoverProblem generateDblpProblem(String fileName) throws FileNotFoundException{
+	/**
+	  * The first integer of a file in the binary format (the bytes "WSCP")
+	  */
+	private static final int BINARY_MAGIC = 0x50435357;
+	
+	/**
+	  * The version of the binary format
+	  */
+	private static final int BINARY_VERSION = 1;
+	
+	/**
+	  * The number of integers in the header of the binary format
+	  */
+	private static final int BINARY_HEADER_INTS = 4;
+	
+	/**
+	  * The binary format (see above)
+	  */
+	public static final ProblemFormat BINARY = new ProblemFormat() {
+		
+		public String getName() {
+			return "binary";
+		}
+		
+		public boolean recognizes(ProblemFileSample sample) {
+			
+			byte[] prefix = sample.getPrefix();
+			return prefix.length >= 4 && 
+				(prefix[0] & 0xff | (prefix[1] & 0xff) << 8 | (prefix[2] & 0xff) << 16 | (prefix[3] & 0xff) << 24) == BINARY_MAGIC;
+		}
+		
+		public SetCoverProblem load(String fileName) throws IOException {
+			return generateBinaryProblem(fileName);
+		}
+	};
+	
+	/**
+	  * The format of the rail instances: a line with the universe size and the number of sets, followed by 
+	  * a line per set with its weight, its size and its elements
+	  */
+	public static final ProblemFormat RAIL = new ProblemFormat() {
+		
+		public String getName() {
+			return "rail";
+		}
+		
+		public boolean recognizes(ProblemFileSample sample) {
+			
+			int[] header = sample.getLine(0);
+			if (header == null || header.length != 2 || sample.getNumberOfSampledLines() < 2) return false;
+			
+			for (int i = 1 ; i < sample.getNumberOfSampledLines() ; i++) {
+				
+				int[] line = sample.getLine(i);
+				if (line == null || line.length < 2 || line[1] != line.length - 2 || !inRange(line, 2, header[0])) return false;
+			}
+			return true;
+		}
+		
+		public SetCoverProblem load(String fileName) throws IOException {
+			return generateRailProblem(fileName);
+		}
+	};
+	
+	/**
+	  * The format of the dblp instance: a line with the universe size and the number of sets, followed by 
+	  * a line per set with its weight and its elements
+	  */
+	public static final ProblemFormat DBLP = new ProblemFormat() {
+		
+		public String getName() {
+			return "dblp";
+		}
+		
+		public boolean recognizes(ProblemFileSample sample) {
+			
+			int[] header = sample.getLine(0);
+			if (header == null || header.length != 2 || sample.getNumberOfLines() != header[1] + 1) return false;
+			
+			for (int i = 1 ; i < sample.getNumberOfSampledLines() ; i++) {
+				
+				int[] line = sample.getLine(i);
+				if (line == null || !inRange(line, 1, header[0])) return false;
+			}
+			return true;
+		}
+		
+		public SetCoverProblem load(String fileName) throws IOException {
+			return generateDblpProblem(fileName);
+		}
+	};
+	
+	/**
+	  * The format of the accidents (frequent itemset) instances: a line with the number of sets and the universe size, 
+	  * followed by a line per set with its elements. All sets have a weight of 1
+	  */
+	public static final ProblemFormat ACCIDENTS = new ProblemFormat() {
+		
+		public String getName() {
+			return "accidents";
+		}
+		
+		public boolean recognizes(ProblemFileSample sample) {
+			
+			int[] header = sample.getLine(0);
+			if (header == null || header.length != 2 || sample.getNumberOfLines() != header[0] + 1) return false;
+			
+			for (int i = 1 ; i < sample.getNumberOfSampledLines() ; i++) {
+				
+				int[] line = sample.getLine(i);
+				if (line == null || !inRange(line, 0, header[1])) return false;
+			}
+			return true;
+		}
+		
+		public SetCoverProblem load(String fileName) throws IOException {
+			return generateFisProblem(fileName);
+		}
+	};
+	
+	/**
+	  * The OR-Library format: the universe size and the number of sets, the weights of all sets, 
+	  * and then, for each element, the number of sets containing it followed by these sets
+	  */
+	public static final ProblemFormat DEFAULT = new ProblemFormat() {
+		
+		public String getName() {
+			return "default";
+		}
+		
+		public boolean recognizes(ProblemFileSample sample) {
+			
+			int[] header = sample.getLine(0);
+			if (header == null || header.length != 2) return false;
+			int universeSize = header[0];
+			int numOfSets = header[1];
+			
+			// follow the structure of the file through the sample: first the weights, then the elements
+			long weightsLeft = numOfSets;
+			int elements = 0;
+			int setsLeftForElement = 0;
+			for (int i = 1 ; i < sample.getNumberOfSampledLines() ; i++) {
+				
+				int[] line = sample.getLine(i);
+				if (line == null) return false;
+				for (int j = 0 ; j < line.length ; j++) {
+					
+					if (weightsLeft > 0) weightsLeft--;
+					else if (setsLeftForElement > 0) {
+						if (line[j] < 1 || line[j] > numOfSets) return false;
+						setsLeftForElement--;
+					}
+					else {
+						if (elements == universeSize || line[j] < 0) return false;
+						elements++;
+						setsLeftForElement = line[j];
+					}
+				}
+			}
+			return sample.isTruncated() || (weightsLeft == 0 && elements == universeSize && setsLeftForElement == 0);
+		}
+		
+		public SetCoverProblem load(String fileName) throws IOException {
+			return generateDefaultTypeProblem(fileName);
+		}
+	};
+	
+	/**
+	  * The registered formats, in the order in which they are tried when detecting the format of a file
+	  */
+	private static final List<ProblemFormat> formats = new CopyOnWriteArrayList<ProblemFormat>(
+			Arrays.asList(BINARY, RAIL, DBLP, ACCIDENTS, DEFAULT));
+	
+	/**
+	  * Registers a format. Formats registered later are tried first when detecting the format of a file
+	  * @param format the format
+	  */
+	public static void registerFormat(ProblemFormat format) {
+		formats.add(0, format);
+	}
+	
+	/**
+	  * @param name the name of a registered format
+	  * @return the format, or null if there is no such format
+	  */
+	public static ProblemFormat getFormat(String name) {
+		
+		for (ProblemFormat format : formats) {
+			if (format.getName().equals(name)) return format;
+		}
+		return null;
+	}
+	
+	/**
+	  * @param fileName the name of a file
+	  * @return the first registered format that recognizes the contents of the file
+	  * @throws IOException if no format recognizes the file
+	  */
+	public static ProblemFormat detectFormat(String fileName) throws IOException {
+		
+		ProblemFileSample sample = new ProblemFileSample(fileName);
+		for (ProblemFormat format : formats) {
+			if (format.recognizes(sample)) return format;
+		}
+		throw new IOException("Cannot detect the format of " + fileName);
+	}
+	
+	/**
+	  * @param line integers
+	  * @param from the index of the first integer to check
+	  * @param max the maximal value allowed
+	  * @return true if all integers starting at the given index are between 1 and max
+	  */
+	private static boolean inRange(int[] line, int from, int max) {
+		
+		for (int j = from ; j < line.length ; j++) {
+			if (line[j] < 1 || line[j] > max) return false;
+		}
+		return true;
+	}
+	
+	// each line holds the weight of a set followed by its elements
+	private static SetCoverProblem generateDblpProblem(String fileName) throws IOException {
 
-		Scanner scanner = new Scanner(new File(fileName));
-		int universeSize = scanner.nextInt();
-		int numOfSets = scanner.nextInt();	
+		IntTokenizer tokenizer = new IntTokenizer(fileName);
+		int universeSize = tokenizer.nextInt();
+		int numOfSets = tokenizer.nextInt();	
 		int[] weights = new int[numOfSets];
-		ArrayList<BitSet> setContents = new ArrayList<BitSet>(numOfSets);
+		SetBuilder sets = new SetBuilder(fileName, universeSize, numOfSets);
 				
 		for (int i=0 ; i < numOfSets ; i++) {
-			String line = scanner.nextLine();
-			weights[i] = scanner.nextInt();
-					
-			BitSet newSet = new BitSet(universeSize);
-					
-			Scanner lineScanner = new Scanner(line);
-			int currSetSize = 0;
-			while (lineScanner.hasNext()) {
-				int element = lineScanner.nextInt() - 1;
-				newSet.set(element);
+			tokenizer.nextLine();
+			weights[i] = tokenizer.nextInt();
 					
+			while (tokenizer.hasNextIntOnLine()) {
+				int element = tokenizer.nextInt() - 1;
+				sets.add(i, element);
 			}
-			
-			setContents.add(i, newSet);
 		}
-		return new SetCoverProblem(numOfSets, universeSize, setContents, weights);
+		return sets.build(weights);
 	}
 		
+	// each line holds the elements of a set, and all sets have a weight of 1
+	private static SetCoverProblem generateFisProblem(String fileName) throws IOException {
 		
-	private static SetCoverProblem generateFisProblem(String fileName) throws FileNotFoundException{
-		
-		Scanner scanner = new Scanner(new File(fileName));	
-		int numOfSets = scanner.nextInt();
-		int universeSize = scanner.nextInt();
+		IntTokenizer tokenizer = new IntTokenizer(fileName);
+		int numOfSets = tokenizer.nextInt();
+		int universeSize = tokenizer.nextInt();
 		int[] weights = new int[numOfSets];
-		ArrayList<BitSet> setContents = new ArrayList<BitSet>(numOfSets);
-			
-		Random weightsGenerator = new Random();
+		SetBuilder sets = new SetBuilder(fileName, universeSize, numOfSets);
 					
 		for (int i=0 ; i < numOfSets ; i++) {
-			String line = scanner.nextLine();
+			tokenizer.nextLine();
 			weights[i] = 1;
-			BitSet newSet = new BitSet(universeSize);
-					
-			Scanner lineScanner = new Scanner(line);
-			int currSetSize = 0;
-			while (lineScanner.hasNext()) {
-				int element = lineScanner.nextInt() - 1;
-				newSet.set(element);
-					
+			
+			while (tokenizer.hasNextIntOnLine()) {
+				int element = tokenizer.nextInt() - 1;
+				sets.add(i, element);
 			}
-			setContents.add(i, newSet);
 		}
-		return new SetCoverProblem(numOfSets, universeSize, setContents, weights);	
+		return sets.build(weights);	
 	}
 		
-	private static SetCoverProblem generateDefaultTypeProblem(String fileName) throws 	FileNotFoundException {
+	// the OR-Library format: the weights of all sets, followed by the sets containing each element
+	private static SetCoverProblem generateDefaultTypeProblem(String fileName) throws IOException {
 			
-		Scanner scanner = new Scanner(new File(fileName));
-		int universeSize = scanner.nextInt();
-		int numOfSets = scanner.nextInt();
+		IntTokenizer tokenizer = new IntTokenizer(fileName);
+		int universeSize = tokenizer.nextInt();
+		int numOfSets = tokenizer.nextInt();
 		int[] weights = new int[numOfSets];
-		ArrayList<BitSet> setContents = new ArrayList<BitSet>(numOfSets);
+		SetBuilder sets = new SetBuilder(fileName, universeSize, numOfSets);
 			
 		for (int i=0 ; i < numOfSets ; i++) {
-			weights[i] = scanner.nextInt();
-			BitSet newSet = new BitSet(universeSize);
-			setContents.add(i, newSet);
+			weights[i] = tokenizer.nextInt();
 		}
 			
 		for (int i=0 ; i < universeSize ; i++) {
-			int numOfSetsForElem = scanner.nextInt();
+			int numOfSetsForElem = tokenizer.nextInt();
 			for (int j = 0 ; j < numOfSetsForElem ; j++) {
 					
-				int set = scanner.nextInt() - 1; //reduce set number by 1 to fit indices
-				setContents.get(set).set(i);
+				int set = tokenizer.nextInt() - 1; //reduce set number by 1 to fit indices
+				sets.add(set, i);
 					
 			}
 		}
 			
-		return new SetCoverProblem(numOfSets, universeSize, setContents, weights);	
+		return sets.build(weights);	
 	}
-			
-	private static SetCoverProblem generateRailProblem(String fileName) throws FileNotFoundException{
 	
-		Scanner scanner = new Scanner(new File(fileName));
-		int universeSize = scanner.nextInt();
-		int numOfSets = scanner.nextInt();	
+	// the weight of each set is followed by its size and its elements
+	private static SetCoverProblem generateRailProblem(String fileName) throws IOException {
+	
+		IntTokenizer tokenizer = new IntTokenizer(fileName);
+		int universeSize = tokenizer.nextInt();
+		int numOfSets = tokenizer.nextInt();	
 		int[] weights = new int[numOfSets];
-		ArrayList<BitSet> setContents = new ArrayList<BitSet>(numOfSets);
+		SetBuilder sets = new SetBuilder(fileName, universeSize, numOfSets);
 			
 		for (int i=0 ; i < numOfSets ; i++) {
 					
-			weights[i] = scanner.nextInt();
-			int setSize = scanner.nextInt();
-			BitSet newSet = new BitSet(universeSize);
+			weights[i] = tokenizer.nextInt();
+			int setSize = tokenizer.nextInt();
 									
 			for (int j=0 ; j < setSize ; j++) {
-				int element = scanner.nextInt() - 1;
-				newSet.set(element);
+				int element = tokenizer.nextInt() - 1;
+				sets.add(i, element);
+			}
+		}
+		return sets.build(weights);	
+	}
+	
+	/**
+	  * Loads a problem stored in the binary format
+	  * @param fileName the name of the file
+	  * @return the problem
+	  */
+	private static SetCoverProblem generateBinaryProblem(String fileName) throws IOException {
+		
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r") ; FileChannel channel = file.getChannel()) {
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			IntBuffer ints = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			if (ints.remaining() < BINARY_HEADER_INTS || ints.get() != BINARY_MAGIC) 
+				throw new IOException(fileName + " is not a binary set cover problem");
+			if (ints.get() != BINARY_VERSION) 
+				throw new IOException(fileName + " has an unsupported binary format version");
+			
+			int universeSize = ints.get();
+			int numOfSets = ints.get();
+			if (universeSize < 0 || numOfSets < 0 || 2L * numOfSets + 1 > ints.remaining()) 
+				throw new IOException(fileName + " has an invalid header or is truncated");
+			int[] weights = new int[numOfSets];
+			int[] setOffsets = new int[numOfSets + 1];
+			ints.get(weights);
+			ints.get(setOffsets);
+			
+			// the sets must be consecutive ranges of the elements, of distinct elements of the universe in increasing order
+			if (setOffsets[0] != 0) throw new IOException(fileName + " has invalid set offsets");
+			for (int i = 0 ; i < numOfSets ; i++) {
+				if (setOffsets[i+1] < setOffsets[i]) throw new IOException(fileName + " has invalid set offsets");
+			}
+			if (setOffsets[numOfSets] > ints.remaining()) throw new IOException(fileName + " is truncated");
+			int[] setElements = new int[setOffsets[numOfSets]];
+			ints.get(setElements);
+			for (int i = 0 ; i < numOfSets ; i++) {
+				for (int j = setOffsets[i] ; j < setOffsets[i+1] ; j++) {
+					
+					if (setElements[j] < 0 || setElements[j] >= universeSize) 
+						throw new IOException(fileName + " has an element out of range: " + (setElements[j] + 1));
+					if (j > setOffsets[i] && setElements[j] <= setElements[j-1]) 
+						throw new IOException(fileName + " has a set whose elements are not increasing");
+				}
+			}
+			
+			return new SetCoverProblem(numOfSets, universeSize, weights, setOffsets, setElements);
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException(fileName + " is truncated", e);
+		}
+	}
+	
+	/**
+	  * Stores a problem in the binary format
+	  * @param problem the problem
+	  * @param fileName the name of the file to be written
+	  */
+	public static void writeBinaryProblem(SetCoverProblem problem, String fileName) throws IOException {
+		
+		int numOfSets = problem.getNumberOfSets();
+		int[] setOffsets = problem.getSetOffsets();
+		int[] setElements = problem.getSetElements();
+		long numOfInts = BINARY_HEADER_INTS + numOfSets + setOffsets.length + setElements.length;
+		
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "rw") ; FileChannel channel = file.getChannel()) {
+			
+			file.setLength(0);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 4 * numOfInts);
+			IntBuffer ints = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			ints.put(BINARY_MAGIC);
+			ints.put(BINARY_VERSION);
+			ints.put(problem.getUniverseSize());
+			ints.put(numOfSets);
+			for (int i = 0 ; i < numOfSets ; i++) {
+				ints.put(problem.getWeight(i));
 			}
-			setContents.add(i, newSet);
+			ints.put(setOffsets);
+			ints.put(setElements);
+			buffer.force();
 		}
-		return new SetCoverProblem(numOfSets, universeSize, setContents, weights);	
 	}
 	
-	public static SetCoverProblem generateSetCoverProblem(String fileName) throws FileNotFoundException {
+	/**
+	  * Loads a problem, detecting the format of the file from its contents
+	  * @param fileName the name of the file
+	  * @return the problem
+	  */
+	public static SetCoverProblem generateSetCoverProblem(String fileName) throws IOException {
+		
+		return detectFormat(fileName).load(fileName);
+	}
+	
+	/**
+	  * Loads a problem stored in the given format
+	  * @param fileName the name of the file
+	  * @param formatName the name of a registered format
+	  * @return the problem
+	  */
+	public static SetCoverProblem generateSetCoverProblem(String fileName, String formatName) throws IOException {
 		
-		if (fileName.contains("rail")) return generateRailProblem(fileName);
-		else if (fileName.contains("dblp")) return generateDblpProblem(fileName);
-		else if (fileName.contains("accidents")) return generateFisProblem(fileName);
-		else return generateDefaultTypeProblem(fileName);
+		ProblemFormat format = getFormat(formatName);
+		if (format == null) throw new IllegalArgumentException("Unknown problem format: " + formatName);
+		return format.load(fileName);
 	}
+	
+	/**
+	  * Converts a problem into the binary format
+	  */
+	public static void main(String[] args) throws IOException {
+		
+		if (args.length != 2) {
+			System.out.println("Usage: java SetCoverProblemGenerator <input file> <output binary file>");
+			System.exit(-1);
+		}
 		
+		writeBinaryProblem(generateSetCoverProblem(args[0]), args[1]);
+	}
+	
+	
 	
+	/**
+	  * Collects the elements of the sets of a problem while its file is parsed, and builds the problem from the 
+	  * compressed sparse row form of its sets (see SetCoverProblem.getSetOffsets and getSetElements), so that no set 
+	  * takes memory proportional to the size of the universe while the file is loaded. The elements of a set may be 
+	  * added in any order and more than once, and the elements of different sets may be interleaved (as in the 
+	  * OR-Library format, which lists the sets containing every element)
+	  */
+	private static class SetBuilder {
+		
+		private String fileName;
+		private int universeSize;
+		private int numOfSets;
+		
+		/**
+		  * The set and the element of every membership added so far are sets[k] and elements[k], for k < size
+		  */
+		private int[] sets = new int[1024];
+		private int[] elements = new int[1024];
+		private int size = 0;
+		
+		/**
+		  * @param fileName the name of the file, for error messages
+		  * @param universeSize the size of the universe in the problem
+		  * @param numOfSets the number of sets in the problem
+		  */
+		public SetBuilder(String fileName, int universeSize, int numOfSets) {
+			
+			this.fileName = fileName;
+			this.universeSize = universeSize;
+			this.numOfSets = numOfSets;
+		}
+		
+		/**
+		  * Adds an element to a set
+		  * @param set the index of a set
+		  * @param element an element of the universe
+		  */
+		public void add(int set, int element) throws IOException {
+			
+			if (set < 0 || set >= numOfSets) throw new IOException(fileName + " has a set out of range: " + (set + 1));
+			if (element < 0 || element >= universeSize) throw new IOException(fileName + " has an element out of range: " + (element + 1));
+			if (size == sets.length) {
+				sets = Arrays.copyOf(sets, 2 * size);
+				elements = Arrays.copyOf(elements, 2 * size);
+			}
+			sets[size] = set;
+			elements[size] = element;
+			size++;
+		}
+		
+		/**
+		  * @param weights the weights of the sets
+		  * @return the problem with the sets that were added
+		  */
+		public SetCoverProblem build(int[] weights) {
+			
+			// group the elements by set, keeping the order in which they were added
+			int[] setOffsets = new int[numOfSets + 1];
+			for (int k = 0 ; k < size ; k++) {
+				setOffsets[sets[k]+1]++;
+			}
+			for (int i = 0 ; i < numOfSets ; i++) {
+				setOffsets[i+1] += setOffsets[i];
+			}
+			int[] setElements = new int[size];
+			int[] nextInSet = Arrays.copyOf(setOffsets, numOfSets);
+			for (int k = 0 ; k < size ; k++) {
+				setElements[nextInSet[sets[k]]++] = elements[k];
+			}
+			
+			// sort the elements of every set, and remove repeated elements
+			int pos = 0;
+			for (int i = 0 ; i < numOfSets ; i++) {
+				
+				int from = setOffsets[i];
+				int to = setOffsets[i+1];
+				Arrays.sort(setElements, from, to);
+				setOffsets[i] = pos;
+				for (int j = from ; j < to ; j++) {
+					if (pos == setOffsets[i] || setElements[j] != setElements[pos-1]) setElements[pos++] = setElements[j];
+				}
+			}
+			setOffsets[numOfSets] = pos;
+			if (pos < size) setElements = Arrays.copyOf(setElements, pos);
+			
+			return new SetCoverProblem(numOfSets, universeSize, weights, setOffsets, setElements);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package enumerateWeightedSetCovers;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+  * A worker process of a ShardedEnumeration. The worker connects to the coordinator, reads its shard of the
+  * enumeration (the problem file, the parameters of the enumeration and the queue entries of the shard), and
+  * enumerates the covers of the shard lazily, sending every result as soon as it is found. A result is sent as the
+  * weight of its queue entry (by which the coordinator merges the streams of the workers), its weight and its sets.
+  * The worker starts with credits for a window of results (see ShardedEnumeration.WINDOW), uses one credit for
+  * every result, and waits for more credits from the coordinator when it has none. The worker ends once it sends
+  * all its results, or once the coordinator closes the connection.
+  */
+public class ShardWorker {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 2) {
+			System.out.println("Usage: java ShardWorker <coordinator host> <coordinator port>");
+			System.exit(-1);
+		}
+
+		try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+			run(in, out);
+		}
+		catch (SocketException | EOFException e) {
+			// the coordinator closed the connection, as it needs no more results
+		}
+	}
+
+	/**
+	  * Reads a shard of an enumeration (see ShardedEnumeration.writeTask), and sends its results
+	  */
+	private static void run(DataInputStream in, DataOutputStream out) throws IOException {
+
+		if (in.readInt() != ShardedEnumeration.PROTOCOL_VERSION) throw new IOException("Unsupported version of the coordinator");
+		String problemFile = in.readUTF();
+		long checksum = in.readLong();
+		boolean reduce = in.readBoolean();
+		boolean removeDominated = in.readBoolean();
+		int maxResults = in.readInt();
+		boolean nonRedundant = in.readBoolean();
+		int numReturned = in.readInt();
+		FingerprintSet returned = in.readBoolean() ? FingerprintSet.read(in) : null;
+
+		List<Object> shared = new ArrayList<Object>();
+		QueueEntry[] entries = new QueueEntry[in.readInt()];
+		for (int i = 0 ; i < entries.length ; i++) {
+			entries[i] = EnumerationCheckpoint.readEntry(shared, in);
+		}
+
+		SetCoverProblem problem = SetCoverProblemGenerator.generateSetCoverProblem(problemFile);
+		if (EnumerationCheckpoint.checksum(problem) != checksum) throw new IOException(problemFile + " differs from the problem of the coordinator");
+
+		EnumerationMetrics metrics = new EnumerationMetrics();
+		EnumerateSetCovers enumsc = new EnumerateSetCovers(null, metrics);
+		enumsc.setReduction(reduce, removeDominated);
+		Iterator<Solution> results = enumsc.shardIterator(problem, maxResults, nonRedundant, entries, returned, numReturned);
+		int credits = ShardedEnumeration.WINDOW;
+		while (true) {
+
+			if (credits == 0) credits = in.readInt();
+			if (!results.hasNext()) break;
+			Solution result = results.next();
+			credits--;
+			out.writeBoolean(true);
+			out.writeInt(enumsc.lastEntryWeight());
+			out.writeInt(result.getWeight());
+			BitSet sets = result.getSolution();
+			out.writeInt(sets.cardinality());
+			for (int i = sets.nextSetBit(0) ; i != -1 ; i = sets.nextSetBit(i+1)) {
+				out.writeInt(i);
+			}
+			// the coordinator may be waiting for this result, and the next one may take a while
+			out.flush();
+		}
+		out.writeBoolean(false);
+		out.writeLong(metrics.getCount(EnumerationMetrics.GREEDY_CALLS));
+		out.flush();
+	}
+}
@@ -0,0 +1,395 @@
+package enumerateWeightedSetCovers;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+  * Enumerates the set covers of a problem using several worker processes on the same host.
+  *
+  * Every queue entry stands for a part of the search space (the covers that contain the sets of its second part and
+  * may use those of its third part), and the entries derived from it split its part into disjoint parts, so the
+  * entries in the queue split the rest of the search space between them. The coordinator (this class) starts the
+  * enumeration itself, until the queue holds a few entries for every worker. It then deals the entries to the
+  * workers (see ShardWorker), which are separate JVMs that connect to the coordinator over a local socket. Each
+  * worker enumerates the covers of its shard, and streams them back in the order of the queue entries they came
+  * from. The coordinator merges these ranked streams, always returning the result whose entry is lightest (and of
+  * results whose entries are equally light, that of the first worker), so the results are returned in the order of
+  * their entries, as in a single process. Non-redundant results that several workers find are returned once.
+  *
+  * Workers produce their results lazily, and may only run ahead of the merge by a window of results: the coordinator
+  * grants a worker credits for more results as it consumes those that the worker sent. This bounds the work spent
+  * on results that are never returned, and the workers are stopped as soon as enough results are returned.
+  *
+  * The results may differ from those of a single process, though. Every worker has a queue of its own, which orders
+  * entries of equal weight, evicts entries and prunes branches independently of the others, and together the
+  * workers keep more entries than a single queue. The workers thus expand other entries than a single process,
+  * especially among entries of equal weight, and may find other (and typically lighter) results. In non-redundant
+  * enumerations, a full queue may also evict entries that would still have led to results (as duplicates are popped
+  * but not returned), which a worker may keep. The results of the same enumeration with the same number of workers
+  * are always the same, as every worker is deterministic and the merge breaks ties by worker.
+  */
+public class ShardedEnumeration implements Closeable {
+
+	/**
+	  * The version of the protocol between the coordinator and the workers
+	  */
+	static final int PROTOCOL_VERSION = 1;
+
+	/**
+	  * The number of queue entries for every worker before the entries are dealt to the workers
+	  */
+	private static final int ENTRIES_PER_WORKER = 4;
+
+	/**
+	  * The number of results that a worker may send ahead of the merge
+	  */
+	static final int WINDOW = 64;
+
+	/**
+	  * The time to wait for the workers to connect, in milliseconds
+	  */
+	private static final int CONNECT_TIMEOUT = 60000;
+
+	/**
+	  * The file of the problem, which the workers read as well
+	  */
+	private String problemFile;
+
+	/**
+	  * The maximal number of worker processes
+	  */
+	private int numWorkers;
+
+	/**
+	  * Whether the problem is reduced before it is enumerated, and whether the reduction removes dominated sets
+	  */
+	private boolean reduce = false;
+	private boolean removeDominated = false;
+
+	/**
+	  * The metrics of the part of the enumeration run by the coordinator, to which the greedy calls of the workers are added
+	  */
+	private EnumerationMetrics metrics = new EnumerationMetrics();
+
+	/**
+	  * The worker processes and their connections, while an enumeration is running
+	  */
+	private List<Process> processes = new ArrayList<Process>();
+	private List<Socket> sockets = new ArrayList<Socket>();
+
+	/**
+	  * Creates an enumerator that uses worker processes
+	  * @param problemFile the file of the problem
+	  * @param numWorkers the maximal number of worker processes
+	  */
+	public ShardedEnumeration(String problemFile, int numWorkers) {
+
+		this.problemFile = new File(problemFile).getAbsolutePath();
+		this.numWorkers = numWorkers;
+	}
+
+	/**
+	  * Determines whether the problem is reduced before it is enumerated (see EnumerateSetCovers.setReduction)
+	  * @param reduce true if the problem should be reduced (false by default)
+	  * @param removeDominated true if the reduction should also remove duplicate and dominated sets
+	  */
+	public void setReduction(boolean reduce, boolean removeDominated) {
+
+		this.reduce = reduce;
+		this.removeDominated = removeDominated;
+	}
+
+	/**
+	  * @return the metrics of the part of the enumeration that the coordinator runs, and the number of times that the
+	  * workers ran the greedy algorithm (which is added once a worker finds all the results of its shard)
+	  */
+	public EnumerationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	  * Enumerates set covers, starting the worker processes. The workers are stopped once the iterator returns its
+	  * last result, or when the enumerator is closed. An enumerator runs a single enumeration at a time
+	  * @param maxResults the maximum number of results to be returned
+	  * @param nonRedundant determines whether only non-redundant results should be returned
+	  * @return an iterator over the set covers
+	  */
+	public Iterator<Solution> iterator(int maxResults, boolean nonRedundant) throws IOException {
+
+		close();
+		SetCoverProblem problem = SetCoverProblemGenerator.generateSetCoverProblem(problemFile);
+		EnumerateSetCovers local = new EnumerateSetCovers(null, metrics);
+		local.setReduction(reduce, removeDominated);
+
+		// the first results are found by the coordinator, until there are enough entries to deal to the workers
+		final List<Solution> prefix = new ArrayList<Solution>();
+		Iterator<Solution> localResults = local.iterator(problem, maxResults, nonRedundant);
+		while (prefix.size() < maxResults) {
+
+			int queued = local.expandPending();
+			if (queued == 0 || queued >= ENTRIES_PER_WORKER * numWorkers || !localResults.hasNext()) break;
+			prefix.add(localResults.next());
+		}
+
+		QueueEntry[] entries = prefix.size() < maxResults ? local.drainQueue() : new QueueEntry[0];
+		int workers = Math.min(numWorkers, entries.length);
+		final List<DataInputStream> streams = new ArrayList<DataInputStream>();
+		final List<DataOutputStream> credits = new ArrayList<DataOutputStream>();
+		if (workers > 0) {
+
+			FingerprintSet returned = nonRedundant ? local.returnedResults() : null;
+			startWorkers(workers);
+			for (int w = 0 ; w < workers ; w++) {
+
+				// the entries are ordered by weight, so dealing them in turn gives every worker some of the best entries
+				List<QueueEntry> shard = new ArrayList<QueueEntry>();
+				for (int i = w ; i < entries.length ; i += workers) {
+					shard.add(entries[i]);
+				}
+				Socket socket = sockets.get(w);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+				writeTask(out, EnumerationCheckpoint.checksum(problem), maxResults, nonRedundant, shard, returned, prefix.size());
+				out.flush();
+				credits.add(out);
+				streams.add(new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16)));
+			}
+		}
+
+		return new MergedResults(prefix, streams, credits, maxResults, nonRedundant);
+	}
+
+	/**
+	  * Stops the workers of the current enumeration, if any
+	  */
+	public void close() {
+
+		for (Socket socket : sockets) {
+			try {
+				socket.close();
+			}
+			catch (IOException e) {
+				// the worker stops anyway when it is destroyed
+			}
+		}
+		for (Process process : processes) {
+			process.destroy();
+		}
+		sockets.clear();
+		processes.clear();
+	}
+
+	/**
+	  * Starts worker processes, running the same JVM with the same class path, and waits for them to connect
+	  */
+	private void startWorkers(int workers) throws IOException {
+
+		try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			for (int w = 0 ; w < workers ; w++) {
+
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						ShardWorker.class.getName(), server.getInetAddress().getHostAddress(), Integer.toString(server.getLocalPort()));
+				processes.add(builder.inheritIO().start());
+			}
+
+			server.setSoTimeout(CONNECT_TIMEOUT);
+			for (int w = 0 ; w < workers ; w++) {
+
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+			}
+		}
+		catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	  * Sends a shard of the enumeration to a worker (see ShardWorker.readTask)
+	  */
+	private void writeTask(DataOutputStream out, long checksum, int maxResults, boolean nonRedundant, List<QueueEntry> shard,
+			FingerprintSet returned, int numReturned) throws IOException {
+
+		out.writeInt(PROTOCOL_VERSION);
+		out.writeUTF(problemFile);
+		out.writeLong(checksum);
+		out.writeBoolean(reduce);
+		out.writeBoolean(removeDominated);
+		out.writeInt(maxResults);
+		out.writeBoolean(nonRedundant);
+		out.writeInt(numReturned);
+		out.writeBoolean(returned != null);
+		if (returned != null) returned.write(out);
+
+		IdentityHashMap<Object, Integer> shared = new IdentityHashMap<Object, Integer>();
+		out.writeInt(shard.size());
+		for (QueueEntry entry : shard) {
+			EnumerationCheckpoint.writeEntry(entry, shared, out);
+		}
+	}
+
+	public static void main(String[] inp) throws IOException {
+
+		if (inp.length != 4) {
+
+			System.out.println("Usage: java ShardedEnumeration <input file> <num results> <nonRedundant?> <num workers>");
+			System.exit(-1);
+		}
+
+		long startTime = System.nanoTime();
+		int numResults = 0;
+		Integer firstWeight = null, bestWeight = null;
+		try (ShardedEnumeration enumeration = new ShardedEnumeration(inp[0], Integer.parseInt(inp[3]))) {
+
+			Iterator<Solution> results = enumeration.iterator(Integer.parseInt(inp[1]), Boolean.parseBoolean(inp[2]));
+			while (results.hasNext()) {
+
+				int weight = results.next().getWeight();
+				if (firstWeight == null) firstWeight = weight;
+				if (bestWeight == null || weight < bestWeight) bestWeight = weight;
+				numResults++;
+			}
+		}
+		System.out.println("Results: " + numResults + " in " + (System.nanoTime() - startTime)/1000000 + " ms");
+		System.out.println("First Weight: " + firstWeight);
+		System.out.println("Best Weight: " + bestWeight);
+	}
+
+
+	/**
+	  * The results of the coordinator, followed by the merge of the ranked streams of the workers
+	  */
+	private class MergedResults implements Iterator<Solution> {
+
+		/**
+		  * The results found by the coordinator, which are returned first
+		  */
+		private List<Solution> prefix;
+
+		/**
+		  * The streams of the workers, and for every stream the weight of the entry of its next result and the
+		  * result itself (or null if the stream ended)
+		  */
+		private List<DataInputStream> streams;
+		private int[] keys;
+		private Solution[] heads;
+
+		/**
+		  * The connections on which the workers are granted credits, and the number of results read from every
+		  * worker since it was last granted credits
+		  */
+		private List<DataOutputStream> credits;
+		private int[] unpaid;
+
+		/**
+		  * The maximum number of results, and the number of results returned so far
+		  */
+		private int maxResults;
+		private int numResults = 0;
+
+		/**
+		  * The fingerprints of the results returned from the streams, if only non-redundant results are returned (or null)
+		  */
+		private FingerprintSet returned;
+
+		/**
+		  * The next result, if it was already found
+		  */
+		private Solution next = null;
+
+		public MergedResults(List<Solution> prefix, List<DataInputStream> streams, List<DataOutputStream> credits, int maxResults, boolean nonRedundant) {
+
+			this.prefix = prefix;
+			this.streams = streams;
+			this.credits = credits;
+			unpaid = new int[streams.size()];
+			this.maxResults = maxResults;
+			keys = new int[streams.size()];
+			heads = new Solution[streams.size()];
+			for (int w = 0 ; w < streams.size() ; w++) {
+				advance(w);
+			}
+			if (nonRedundant) returned = new FingerprintSet(false);
+		}
+
+		public boolean hasNext() {
+
+			if (next == null) next = nextResult();
+			return next != null;
+		}
+
+		public Solution next() {
+
+			if (!hasNext()) throw new NoSuchElementException();
+			Solution result = next;
+			next = null;
+			return result;
+		}
+
+		private Solution nextResult() {
+
+			if (numResults < prefix.size()) return prefix.get(numResults++);
+
+			while (numResults < maxResults) {
+
+				int best = -1;
+				for (int w = 0 ; w < streams.size() ; w++) {
+					if (heads[w] != null && (best == -1 || keys[w] < keys[best])) best = w;
+				}
+				if (best == -1) break;
+
+				Solution result = heads[best];
+				advance(best);
+				if (returned != null && !returned.add(result.getSolution())) continue;
+				numResults++;
+				return result;
+			}
+			close();
+			return null;
+		}
+
+		/**
+		  * Reads the next result of a stream (see ShardWorker), granting the worker credits for another half window
+		  * once it sent half a window of results
+		  */
+		private void advance(int w) {
+
+			DataInputStream in = streams.get(w);
+			heads[w] = null;
+			try {
+				if (!in.readBoolean()) {
+					metrics.counter(EnumerationMetrics.GREEDY_CALLS).add(in.readLong());
+					return;
+				}
+				keys[w] = in.readInt();
+				int weight = in.readInt();
+				BitSet sets = new BitSet();
+				for (int n = in.readInt() ; n > 0 ; n--) {
+					sets.set(in.readInt());
+				}
+				heads[w] = new Solution(sets, weight);
+
+				if (++unpaid[w] == WINDOW / 2) {
+					credits.get(w).writeInt(unpaid[w]);
+					credits.get(w).flush();
+					unpaid[w] = 0;
+				}
+			}
+			catch (IOException e) {
+				close();
+				throw new RuntimeException("Failed to read the results of a worker", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package enumerateWeightedSetCovers;
+
+import java.util.BitSet;
+
+/**
+  * An immutable set of indices that can share most of its memory with similar sets.
+  *
+  * A set is represented by a base BitSet, which is never changed once the set is created, and a list of
+  * flipped indices: an index is in the set if it is in the base and flipped an even number of times, or if it is
+  * not in the base and flipped an odd number of times. Sets that are derived from one another (as the second and
+  * third parts of sibling queue entries are) share the same base, and the prefixes of the same array of flipped
+  * indices, so each of them costs only a few words. Once the list of flipped indices grows to be comparable to the
+  * base in size, a derived set gets a new base of its own.
+  *
+  * Each set is charged for the memory of the base and the array of flipped indices that were allocated to create
+  * it (see estimatedBytes). The sets derived together share this charge equally, so that the memory of the shared
+  * parts is counted about once, however many sets use them.
+  */
+class SharedBitSet {
+
+	/**
+	  * The minimal number of flipped indices that a set may have before getting a base of its own
+	  */
+	private static final int MIN_FLIPS_BEFORE_NEW_BASE = 64;
+
+	/**
+	  * The estimated memory of an object or an array in addition to its contents, in bytes
+	  */
+	private static final int HEADER_BYTES = 16;
+
+	/**
+	  * The empty set
+	  */
+	static final SharedBitSet EMPTY = new SharedBitSet(new BitSet());
+
+	/**
+	  * The base of the set. Shared between sets, and thus never changed
+	  */
+	private BitSet base;
+
+	/**
+	  * The flipped indices are flips[0], ..., flips[numFlips-1]. The array may be shared with other sets,
+	  * which use a longer prefix of it, so only the first numFlips entries belong to this set
+	  */
+	private int[] flips;
+
+	/**
+	  * The number of flipped indices
+	  */
+	private int numFlips;
+
+	/**
+	  * The estimated memory that the set is charged for, in bytes
+	  */
+	private long bytes;
+
+	/**
+	  * Creates a set with the given members
+	  * @param bits the members of the set. The BitSet is owned by the new set, and must not be changed afterwards
+	  */
+	public SharedBitSet(BitSet bits) {
+		this(bits, new int[0], 0, estimatedBytes(bits) + estimatedBytes(new int[0]));
+	}
+
+	/**
+	  * Creates a set from its representation (see getBase, getFlips and getNumFlips)
+	  * @param bytes the estimated memory that the set is charged for: that of the parts of its representation that
+	  * were allocated for it, and are not charged to another set
+	  */
+	SharedBitSet(BitSet base, int[] flips, int numFlips, long bytes) {
+
+		this.base = base;
+		this.flips = flips;
+		this.numFlips = numFlips;
+		this.bytes = bytes;
+	}
+
+	/**
+	  * @return the base of the set, which may be shared with other sets and must not be changed
+	  */
+	BitSet getBase() {
+		return base;
+	}
+
+	/**
+	  * @return the array of flipped indices, of which only the first getNumFlips() belong to the set. It may be
+	  * shared with other sets and must not be changed
+	  */
+	int[] getFlips() {
+		return flips;
+	}
+
+	/**
+	  * @return the number of flipped indices
+	  */
+	int getNumFlips() {
+		return numFlips;
+	}
+
+	/**
+	  * @return the estimated memory that the set is charged for, in bytes. This is the share of the set in the new
+	  * base and array of flipped indices that were allocated when it was derived, and does not count the parts that
+	  * it shares with the set it was derived from
+	  */
+	public long estimatedBytes() {
+		return bytes;
+	}
+
+	/**
+	  * @return the estimated memory of a base, in bytes
+	  */
+	static long estimatedBytes(BitSet base) {
+		return 2 * HEADER_BYTES + base.size() / 8;
+	}
+
+	/**
+	  * @return the estimated memory of an array of flipped indices, in bytes
+	  */
+	static long estimatedBytes(int[] flips) {
+		return HEADER_BYTES + 4L * flips.length;
+	}
+
+	/**
+	  * @param i an index
+	  * @return true if the index is in the set
+	  */
+	public boolean get(int i) {
+
+		boolean member = base.get(i);
+		for (int j = 0 ; j < numFlips ; j++) {
+			if (flips[j] == i) member = !member;
+		}
+		return member;
+	}
+
+	/**
+	  * @return a new (mutable) BitSet with the members of the set
+	  */
+	public BitSet toBitSet() {
+
+		BitSet bits = (BitSet)base.clone();
+		for (int j = 0 ; j < numFlips ; j++) {
+			bits.flip(flips[j]);
+		}
+		return bits;
+	}
+
+	/**
+	  * @param size the number of indices in the universe of the set (greater than every member)
+	  * @return a new (mutable) FixedBitSet with the members of the set
+	  */
+	public FixedBitSet toFixedBitSet(int size) {
+
+		FixedBitSet bits = FixedBitSet.valueOf(base, size);
+		long[] words = bits.getWords();
+		for (int j = 0 ; j < numFlips ; j++) {
+			words[flips[j] >>> 6] ^= 1L << flips[j];
+		}
+		return bits;
+	}
+
+	/**
+	  * @param indices indices to flip
+	  * @return the set where each of the given indices is flipped (removed if it is a member, and added otherwise)
+	  */
+	public SharedBitSet withFlipped(int... indices) {
+		return withFlippedPrefixes(indices)[indices.length];
+	}
+
+	/**
+	  * Creates the sets derived from this set by flipping each prefix of the given indices. All the returned sets
+	  * share the memory used for representing them, and each new set is charged for an equal share of it
+	  * @param indices indices to flip
+	  * @return an array of indices.length+1 sets, where the k'th set is this set with indices[0], ..., indices[k-1] flipped
+	  */
+	public SharedBitSet[] withFlippedPrefixes(int[] indices) {
+
+		SharedBitSet[] sets = new SharedBitSet[indices.length + 1];
+		sets[0] = this;
+		if (indices.length == 0) return sets;
+
+		// once there are too many flips, start again from a new base, which is shared by all the derived sets
+		BitSet newBase = base;
+		int[] newFlips = new int[numFlips + indices.length];
+		int newNumFlips = numFlips;
+		System.arraycopy(flips, 0, newFlips, 0, numFlips);
+		if (numFlips + indices.length > Math.max(MIN_FLIPS_BEFORE_NEW_BASE, base.size() / 64)) {
+
+			newBase = toBitSet();
+			newFlips = new int[indices.length];
+			newNumFlips = 0;
+		}
+		System.arraycopy(indices, 0, newFlips, newNumFlips, indices.length);
+
+		long newBytes = estimatedBytes(newFlips) + (newBase != base ? estimatedBytes(newBase) : 0);
+		long share = (newBytes + indices.length - 1) / indices.length;
+		for (int k = 1 ; k <= indices.length ; k++) {
+			sets[k] = new SharedBitSet(newBase, newFlips, newNumFlips + k, share);
+		}
+		return sets;
+	}
+
+	public String toString() {
+		return QueueEntry.bitSetString(toBitSet());
+	}
+}
@@ -0,0 +1,525 @@
+package enumerateWeightedSetCovers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+  * A bounded priority queue of QueueEntry objects that keeps only a head of the queue in memory, and spills the
+  * rest of its entries to disk.
+  *
+  * The head is a BoundedQueue whose entries take at most a given estimate of memory. Whenever the head grows
+  * beyond it, its worse half is written to a new run: a file of entries sorted by weight, which is then memory-mapped.
+  * A run is never changed, except that entries are taken from its beginning (when they are polled) and from its
+  * end (when they are evicted as the worst entries of a full queue), so in memory a run only keeps the weight and the
+  * offset of each of its entries. Polling compares the best entry of the head with the first entries of the runs, so
+  * the runs are merged lazily as the queue drains, and entries are polled in exactly the order of their weights.
+  * Entries of equal weight may be polled, and evicted from a full queue, in another order than from a BoundedQueue,
+  * though. An enumeration then expands other entries, so it may find other results, and not only return the
+  * results of equal weight in another order.
+  *
+  * The second and third parts of the entries in a run are written once per run (see SharedBitSet), and are read
+  * back when the first entry that uses them is polled, so that the polled entries share them again. The file of a
+  * run is deleted as soon as it is mapped where the system allows it, and otherwise when the run is exhausted or the
+  * JVM exits. A checkpoint of the queue takes the entries of the head and only the bounds of the runs (see
+  * SpilledRun), and copies the spilled entries from the mapped runs while it is written.
+  */
+class SpillingQueue implements EntryQueue {
+
+	/**
+	  * The estimated memory of a spilled entry, for its weight and offset
+	  */
+	private static final int SPILLED_ENTRY_BYTES = 8;
+
+	/**
+	  * The maximum number of entries in the queue
+	  */
+	private int capacity;
+
+	/**
+	  * The entries in memory
+	  */
+	private BoundedQueue head = new BoundedQueue(Integer.MAX_VALUE);
+
+	/**
+	  * The maximal estimated memory of the entries in the head, in bytes
+	  */
+	private long headBytes;
+
+	/**
+	  * The directory in which runs are written
+	  */
+	private File directory;
+
+	/**
+	  * The runs that still have entries
+	  */
+	private List<Run> runs = new ArrayList<Run>();
+
+	/**
+	  * The number of entries in the runs
+	  */
+	private int spilled = 0;
+
+	/**
+	  * Creates an empty queue
+	  * @param capacity the maximum number of entries in the queue
+	  * @param directory the directory in which the entries are spilled (which must exist)
+	  * @param headBytes the maximal estimated memory of the entries that are kept in memory, in bytes
+	  */
+	public SpillingQueue(int capacity, String directory, long headBytes) {
+
+		this.capacity = Math.max(capacity, 0);
+		this.directory = new File(directory);
+		this.headBytes = headBytes;
+	}
+
+	public int size() {
+		return head.size() + spilled;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public boolean isFull() {
+		return size() >= capacity;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	  * @return the number of entries that are on disk
+	  */
+	public int spilledSize() {
+		return spilled;
+	}
+
+	/**
+	  * @return the number of runs on disk
+	  */
+	public int numberOfRuns() {
+		return runs.size();
+	}
+
+	public long estimatedBytes() {
+		return head.estimatedBytes() + (long)SPILLED_ENTRY_BYTES * spilled;
+	}
+
+	public boolean admits(int weight) {
+		return size() < capacity || (size() > 0 && weight < worstWeight());
+	}
+
+	public boolean offer(QueueEntry entry) {
+
+		if (!admits(entry.getWeight())) return false;
+
+		if (size() == capacity) removeWorst();
+		head.offer(entry);
+		if (head.estimatedBytes() > headBytes && head.size() > 1) spill();
+		return true;
+	}
+
+	public QueueEntry poll() {
+
+		Run best = bestRun();
+		if (best == null || (!head.isEmpty() && head.peek().getWeight() <= best.firstWeight())) return head.poll();
+
+		QueueEntry entry = best.read(best.start++);
+		removeIfExhausted(best);
+		return entry;
+	}
+
+	public int shrinkTo(long maxBytes) {
+
+		int removed = 0;
+		while (estimatedBytes() > maxBytes && size() > 0) {
+			removeWorst();
+			removed++;
+		}
+		capacity = Math.min(capacity, size());
+		return removed;
+	}
+
+	/**
+	  * Returns the entries of the head, in heap order
+	  */
+	public QueueEntry[] toArray() {
+		return head.toArray();
+	}
+
+	public SpilledRun[] spilledRuns() {
+
+		SpilledRun[] spilledRuns = new SpilledRun[runs.size()];
+		for (int i = 0 ; i < spilledRuns.length ; i++) {
+			Run run = runs.get(i);
+			spilledRuns[i] = new SpilledRun(run.data, run.offsets, run.sharedOffsets, run.start, run.end);
+		}
+		return spilledRuns;
+	}
+
+	/**
+	  * Finds the weight of the worst entry without reading the entry, as the runs keep the weights of their entries in memory
+	  */
+	public int worstWeight() {
+
+		Run worst = worstRun();
+		if (worst == null) return head.worstWeight();
+		if (head.isEmpty()) return worst.lastWeight();
+		return Math.max(head.worstWeight(), worst.lastWeight());
+	}
+
+	/**
+	  * Removes the worst entry without reading it, assuming the queue is not empty
+	  */
+	private void removeWorst() {
+
+		Run worst = worstRun();
+		if (worst == null || (!head.isEmpty() && head.peekWorst().getWeight() >= worst.lastWeight())) {
+			head.pollWorst();
+			return;
+		}
+		worst.end--;
+		removeIfExhausted(worst);
+	}
+
+	/**
+	  * @return the run with the best first entry, or null if there are no runs
+	  */
+	private Run bestRun() {
+
+		Run best = null;
+		for (Run run : runs) {
+			if (best == null || run.firstWeight() < best.firstWeight()) best = run;
+		}
+		return best;
+	}
+
+	/**
+	  * @return the run with the worst last entry, or null if there are no runs
+	  */
+	private Run worstRun() {
+
+		Run worst = null;
+		for (Run run : runs) {
+			if (worst == null || run.lastWeight() > worst.lastWeight()) worst = run;
+		}
+		return worst;
+	}
+
+	/**
+	  * Removes an entry from the count of spilled entries, and the run from the runs if it has no more entries
+	  */
+	private void removeIfExhausted(Run run) {
+
+		spilled--;
+		if (run.start < run.end) return;
+		runs.remove(run);
+		run.close();
+	}
+
+	/**
+	  * Moves the worse half of the head to a new run
+	  */
+	private void spill() {
+
+		QueueEntry[] entries = new QueueEntry[head.size() / 2];
+		for (int i = entries.length - 1 ; i >= 0 ; i--) {
+			entries[i] = head.pollWorst();
+		}
+		try {
+			runs.add(new Run(entries, directory));
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Failed to spill queue entries to " + directory, e);
+		}
+		spilled += entries.length;
+	}
+
+
+	/**
+	  * The entries of a run that were in the queue at some point. The mapped contents and the offsets of a run never
+	  * change, and stay valid after the run is closed, so a spilled run can be written by another thread while the
+	  * queue changes. Its entries are copied from the contents of the run without being read into memory
+	  */
+	static class SpilledRun {
+
+		/**
+		  * The contents of the run, and the offsets of its entries and of its shared parts
+		  */
+		private ByteBuffer data;
+		private int[] offsets;
+		private int[] sharedOffsets;
+
+		/**
+		  * The entries start, ..., end-1 of the run
+		  */
+		private int start, end;
+
+		private SpilledRun(MappedByteBuffer data, int[] offsets, int[] sharedOffsets, int start, int end) {
+
+			this.data = data;
+			this.offsets = offsets;
+			this.sharedOffsets = sharedOffsets;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		  * @return the number of entries
+		  */
+		public int size() {
+			return end - start;
+		}
+
+		/**
+		  * Writes the entries as EnumerationCheckpoint.writeEntry does, numbering their shared parts from a given
+		  * number on, in the order in which they are written
+		  * @param firstId the number of the first shared part written
+		  * @param out the stream to which the entries are written
+		  * @return the number of shared parts written
+		  */
+		public int write(int firstId, DataOutputStream out) throws IOException {
+
+			// a run has the same layout as a checkpoint, except that it writes the shared parts separately
+			ByteBuffer contents = data.duplicate();
+			byte[] buffer = new byte[1 << 16];
+			int[] ids = new int[sharedOffsets.length];
+			Arrays.fill(ids, -1);
+			int numWritten = 0;
+			for (int i = start ; i < end ; i++) {
+
+				int pos = offsets[i];
+				int length = 9 + 4 * contents.getInt(pos + 5);
+				copy(contents, pos, length, buffer, out);
+				pos += length;
+				for (int part = 0 ; part < 2 ; part++) {
+
+					// the base, the array of flipped indices and the number of flipped indices
+					for (int k = 0 ; k < 2 ; k++) {
+
+						int id = contents.getInt(pos + 4 * k);
+						if (ids[id] >= 0) {
+							out.writeInt(ids[id]);
+							continue;
+						}
+						ids[id] = firstId + numWritten++;
+						out.writeInt(ids[id]);
+						int offset = sharedOffsets[id];
+						copy(contents, offset, 4 + (k == 0 ? 8 : 4) * contents.getInt(offset), buffer, out);
+					}
+					out.writeInt(contents.getInt(pos + 8));
+					pos += 12;
+				}
+			}
+			return numWritten;
+		}
+
+		private static void copy(ByteBuffer contents, int pos, int length, byte[] buffer, DataOutputStream out) throws IOException {
+
+			contents.position(pos);
+			while (length > 0) {
+				int n = Math.min(length, buffer.length);
+				contents.get(buffer, 0, n);
+				out.write(buffer, 0, n);
+				length -= n;
+			}
+		}
+	}
+
+
+	/**
+	  * A file of entries sorted by weight. The file holds the entries, followed by their shared parts (the bases and
+	  * the arrays of flipped indices of their second and third parts, see SharedBitSet). An entry is written as its
+	  * weight, whether it is from Q1, its sets, and the number of the base, the number of the array of flipped
+	  * indices and the number of flipped indices of its second and of its third part
+	  */
+	private static class Run {
+
+		/**
+		  * The file of the run (or null once it is deleted), and its contents
+		  */
+		private File file;
+		private MappedByteBuffer data;
+
+		/**
+		  * The weight and the offset of every entry, in order of weight
+		  */
+		private int[] weights;
+		private int[] offsets;
+
+		/**
+		  * The offset of every shared part, and the shared parts that were read (by number)
+		  */
+		private int[] sharedOffsets;
+		private Object[] shared;
+
+		/**
+		  * The entries start, ..., end-1 are still in the queue
+		  */
+		int start, end;
+
+		/**
+		  * Writes a run, and maps it into memory
+		  * @param entries the entries, sorted by weight
+		  * @param directory the directory in which the run is written
+		  */
+		public Run(QueueEntry[] entries, File directory) throws IOException {
+
+			file = Files.createTempFile(directory.toPath(), "queue-run", ".bin").toFile();
+			weights = new int[entries.length];
+			offsets = new int[entries.length];
+			IdentityHashMap<Object, Integer> ids = new IdentityHashMap<Object, Integer>();
+			List<Object> parts = new ArrayList<Object>();
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+
+				for (int i = 0 ; i < entries.length ; i++) {
+
+					QueueEntry entry = entries[i];
+					weights[i] = entry.weight;
+					offsets[i] = out.size();
+					out.writeInt(entry.weight);
+					out.writeBoolean(entry.fromQ1);
+					writeInts(entry.sets, out);
+					writePart(entry.second, ids, parts, out);
+					writePart(entry.third, ids, parts, out);
+				}
+
+				sharedOffsets = new int[parts.size()];
+				for (int i = 0 ; i < parts.size() ; i++) {
+
+					sharedOffsets[i] = out.size();
+					if (parts.get(i) instanceof BitSet) {
+						long[] words = ((BitSet)parts.get(i)).toLongArray();
+						out.writeInt(words.length);
+						for (long word : words) {
+							out.writeLong(word);
+						}
+					}
+					else writeInts((int[])parts.get(i), out);
+				}
+				// DataOutputStream.size stops counting at Integer.MAX_VALUE
+				if (out.size() == Integer.MAX_VALUE) throw new IOException("A run of the queue exceeds 2GB");
+			}
+
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r") ; FileChannel channel = raf.getChannel()) {
+				data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			if (file.delete()) file = null;
+			else file.deleteOnExit();
+
+			shared = new Object[sharedOffsets.length];
+			start = 0;
+			end = entries.length;
+		}
+
+		/**
+		  * @return the weight of the first entry that is still in the queue
+		  */
+		public int firstWeight() {
+			return weights[start];
+		}
+
+		/**
+		  * @return the weight of the last entry that is still in the queue
+		  */
+		public int lastWeight() {
+			return weights[end - 1];
+		}
+
+		/**
+		  * @param i the index of an entry in the run
+		  * @return the entry
+		  */
+		public QueueEntry read(int i) {
+
+			int pos = offsets[i];
+			int weight = data.getInt(pos);
+			boolean fromQ1 = data.get(pos + 4) != 0;
+			int[] sets = readInts(pos + 5);
+			pos += 9 + 4 * sets.length;
+			SharedBitSet second = readPart(pos);
+			SharedBitSet third = readPart(pos + 12);
+			return new QueueEntry(weight, sets, second, third, fromQ1);
+		}
+
+		/**
+		  * Releases the file of the run, and the parts that were read
+		  */
+		public void close() {
+
+			shared = null;
+			if (file != null && file.delete()) file = null;
+		}
+
+		private static void writePart(SharedBitSet set, IdentityHashMap<Object, Integer> ids, List<Object> parts, DataOutputStream out) throws IOException {
+
+			out.writeInt(number(set.getBase(), ids, parts));
+			out.writeInt(number(set.getFlips(), ids, parts));
+			out.writeInt(set.getNumFlips());
+		}
+
+		// the number of a shared part, numbering it if it is new
+		private static int number(Object part, IdentityHashMap<Object, Integer> ids, List<Object> parts) {
+
+			Integer id = ids.get(part);
+			if (id == null) {
+				id = parts.size();
+				ids.put(part, id);
+				parts.add(part);
+			}
+			return id;
+		}
+
+		private SharedBitSet readPart(int pos) {
+
+			// the first set that reads a shared part is charged for it
+			long bytes = 0;
+			int baseId = data.getInt(pos);
+			if (shared[baseId] == null) {
+
+				int offset = sharedOffsets[baseId];
+				long[] words = new long[data.getInt(offset)];
+				for (int i = 0 ; i < words.length ; i++) {
+					words[i] = data.getLong(offset + 4 + 8 * i);
+				}
+				shared[baseId] = BitSet.valueOf(words);
+				bytes += SharedBitSet.estimatedBytes((BitSet)shared[baseId]);
+			}
+			int flipsId = data.getInt(pos + 4);
+			if (shared[flipsId] == null) {
+
+				shared[flipsId] = readInts(sharedOffsets[flipsId]);
+				bytes += SharedBitSet.estimatedBytes((int[])shared[flipsId]);
+			}
+			return new SharedBitSet((BitSet)shared[baseId], (int[])shared[flipsId], data.getInt(pos + 8), bytes);
+		}
+
+		private static void writeInts(int[] ints, DataOutputStream out) throws IOException {
+
+			out.writeInt(ints.length);
+			for (int i : ints) {
+				out.writeInt(i);
+			}
+		}
+
+		private int[] readInts(int pos) {
+
+			int[] ints = new int[data.getInt(pos)];
+			for (int i = 0 ; i < ints.length ; i++) {
+				ints[i] = data.getInt(pos + 4 + 4 * i);
+			}
+			return ints;
+		}
+	}
+}
@@ -1,65 +1,157 @@
 package enumerateWeightedSetCovers;
 
 import java.io.*;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+  * Enumerates the covers of every problem in a folder, and writes the statistics of each run to a CSV file.
+  *
+  * The problems are solved by a number of worker threads, each running one enumeration at a time with metrics of
+  * its own, so the statistics of a problem do not depend on the other problems. The rows are written in the order
+  * of the file names, whatever the order in which the problems are solved. An enumeration that runs longer than the
+  * timeout is stopped (see EnumerateSetCovers.setTimeLimit), and its row holds the statistics up to that point.
+  */
 public class Tester {
-	
-	
-	public static void main(String args[]) throws FileNotFoundException, IOException {
-		
-		if (args.length != 4) {
-				System.out.println("Usage: java Tester <tests folder> <number of results> <nonredundant?> <output>");
+
+	/**
+	  * The number of results in every logging interval
+	  */
+	private static final int INTERVAL_LEN = 500;
+
+	/**
+	  * The total number of results of all problems
+	  */
+	private static AtomicLong totalResults = new AtomicLong();
+
+	public static void main(String args[]) throws FileNotFoundException, IOException, InterruptedException {
+
+		if (args.length < 4 || args.length > 6) {
+				System.out.println("Usage: java Tester <tests folder> <number of results> <nonredundant?> <output> [<num workers> [<timeout seconds>]]");
 				System.exit(-1);
 		}
-		
-		File folder = new File(args[0]);
-		File[] listOfFiles = folder.listFiles();
+
+		final String folder = args[0];
+		final int maxResults = Integer.parseInt(args[1]);
+		final boolean nonRedundant = Boolean.parseBoolean(args[2]);
+		int workers = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+		final long timeoutMillis = args.length > 5 ? Long.parseLong(args[5]) * 1000 : Long.MAX_VALUE;
+
+		File[] listOfFiles = new File(folder).listFiles();
+		Arrays.sort(listOfFiles);
 
 		PrintWriter br = new PrintWriter(new FileWriter(args[3] + ".csv"));
-		
-		br.println("Test Name, Max Num of Results, Only Nonredundant, Universe Size, Number of Sets," + 
-					" Time, First Weight, Best Weight, When Found, Interval Times, Weights, ...., Number of Times Running Greedy");
-		int intervalLen = 500;
-		
+
+		br.println("Test Name, Max Num of Results, Only Nonredundant, Universe Size, Number of Sets," +
+					" Time, First Weight, Best Weight, When Found, Interval Times, Weights, ...., Number of Times Running Greedy," +
+					" Number of Results, Results per Second, Greedy Runs per Second, Timed Out");
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<String> testFiles = new ArrayList<String>();
+		List<Future<String>> rows = new ArrayList<Future<String>>();
+		long startTime = System.nanoTime();
+
 		for (int i = 0; i < listOfFiles.length; i++) {
-			
+
 			if (listOfFiles[i].isFile()) {
-				
-				String testFile = listOfFiles[i].getName();
-				StatisticsLogger.removeAll();
-				StatisticsLogger.changeStat("interval", intervalLen);
-
-				String fileName = args[0] + File.separator + testFile;
-				SetCoverProblem problem = SetCoverProblemGenerator.generateSetCoverProblem(fileName);
-				
-				EnumerateSetCovers enumsc = new EnumerateSetCovers();
-				
-				br.print(testFile + ", " + Integer.parseInt(args[1]) + ", " + 
-					Boolean.parseBoolean(args[2]) + ", " + 
-					problem.getUniverseSize() + ", " + problem.getNumberOfSets() + ", ");
-				System.out.println(testFile);
-				
-				long startTime = System.nanoTime();
-				enumsc.enumerate(problem, Integer.parseInt(args[1]), Boolean.parseBoolean(args[2]));
-				long endTime = System.nanoTime();
-				long duration = (endTime - startTime)/1000000;
-
-				br.print(duration + ", " + StatisticsLogger.getStat("firstWeight") + ", " + StatisticsLogger.getStat("lowestWeight") + ", " + 
-							StatisticsLogger.getStat("whenBestFound"));
-				
-				for (int j = 0 ; j < StatisticsLogger.numberOfIntervals() ; j++) {
-					
-					br.print(", " + ((j+1) * intervalLen) + ", " + StatisticsLogger.getIntervalTime(j) + ", " + 
-						StatisticsLogger.getIntervalWeight(j));
-				}
-				br.print(", " + StatisticsLogger.getStat("ranGreedyMinSetCover"));
-				br.println();
-				br.flush();
-				
-			} 
+
+				final String testFile = listOfFiles[i].getName();
+				testFiles.add(testFile);
+				rows.add(pool.submit(new Callable<String>() {
+					public String call() throws IOException {
+						return runTest(folder, testFile, maxResults, nonRedundant, timeoutMillis);
+					}
+				}));
+			}
+		}
+		pool.shutdown();
+
+		for (int i = 0 ; i < rows.size() ; i++) {
+
+			try {
+				br.println(rows.get(i).get());
+			}
+			catch (ExecutionException e) {
+				System.out.println(testFiles.get(i) + " failed: " + e.getCause());
+				br.println(failedRow(testFiles.get(i), maxResults, nonRedundant, e.getCause()));
+			}
+			br.flush();
 		}
-		
+		br.close();
+
+		long duration = Math.max((System.nanoTime() - startTime)/1000000, 1);
+		System.out.println("Solved " + rows.size() + " problems in " + duration + " ms using " + workers + " workers (" +
+					String.format("%.2f", rows.size() * 1000.0 / duration) + " problems per second, " + (totalResults.get() * 1000 / duration) + " results per second)");
+	}
+
+	/**
+	  * Enumerates the covers of a single problem
+	  * @return the row of the CSV file for the problem
+	  */
+	private static String runTest(String folder, String testFile, int maxResults, boolean nonRedundant, long timeoutMillis) throws IOException {
+
+		String fileName = folder + File.separator + testFile;
+		SetCoverProblem problem = SetCoverProblemGenerator.generateSetCoverProblem(fileName);
+
+		EnumerationMetrics metrics = new EnumerationMetrics();
+		EnumerateSetCovers enumsc = new EnumerateSetCovers(null, metrics);
+		enumsc.setLoggingInterval(INTERVAL_LEN);
+		if (timeoutMillis != Long.MAX_VALUE) enumsc.setTimeLimit(timeoutMillis);
+
+		StringBuilder row = new StringBuilder();
+		row.append(csvField(testFile) + ", " + maxResults + ", " + nonRedundant + ", " +
+			problem.getUniverseSize() + ", " + problem.getNumberOfSets() + ", ");
+		System.out.println(testFile);
+
+		long startTime = System.nanoTime();
+		int numResults = 0;
+		Iterator<Solution> results = enumsc.iterator(problem, maxResults, nonRedundant);
+		while (results.hasNext()) {
+			results.next();
+			numResults++;
+		}
+		long endTime = System.nanoTime();
+		long duration = (endTime - startTime)/1000000;
+		totalResults.addAndGet(numResults);
+
+		row.append(duration + ", " + metrics.getValue(EnumerationMetrics.FIRST_WEIGHT) + ", " + metrics.getValue(EnumerationMetrics.LOWEST_WEIGHT) + ", " +
+					metrics.getValue(EnumerationMetrics.WHEN_BEST_FOUND));
+
+		for (int j = 0 ; j < metrics.numberOfIntervals() ; j++) {
+
+			row.append(", " + ((j+1) * INTERVAL_LEN) + ", " + metrics.getIntervalTime(j) + ", " +
+				metrics.getIntervalWeight(j));
+		}
+		long greedyCalls = metrics.getCount(EnumerationMetrics.GREEDY_CALLS);
+		row.append(", " + greedyCalls);
+		row.append(", " + numResults + ", " + (numResults * 1000L / Math.max(duration, 1)) + ", " +
+			(greedyCalls * 1000 / Math.max(duration, 1)) + ", " + enumsc.hasTimedOut());
+		return row.toString();
+	}
+
+	/**
+	  * @return the row of the CSV file for a problem whose enumeration failed. It has the columns of a row without
+	  * interval times, with the failure in the time column and the other results left empty
+	  */
+	private static String failedRow(String testFile, int maxResults, boolean nonRedundant, Throwable cause) {
+		return csvField(testFile) + ", " + maxResults + ", " + nonRedundant + ", , ," + csvField("failed: " + cause) + ", , , , , , , , ";
+	}
+
+	/**
+	  * @return the text as a field of the CSV file, in quotes if it holds a comma, a quote or a line break
+	  */
+	private static String csvField(String text) {
+
+		if (text.indexOf(',') == -1 && text.indexOf('"') == -1 && text.indexOf('\n') == -1 && text.indexOf('\r') == -1)
+			return text;
+		return "\"" + text.replace("\"", "\"\"") + "\"";
 	}
-	
-}
\ No newline at end of file
+}